@@ -0,0 +1,208 @@
+package de.sormuras.bartholdy.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generate a {@code Reflector.Emitter} for each type declaring fields annotated with {@code
+ * Reflector.Option}.
+ *
+ * <p>The generated emitter adds the same arguments as {@code Reflector.reflect} does, but accesses
+ * fields and custom option methods directly.
+ */
+@SupportedAnnotationTypes(ReflectorProcessor.OPTION)
+public class ReflectorProcessor extends AbstractProcessor {
+
+  static final String REFLECTOR = "de.sormuras.bartholdy.Reflector";
+  static final String OPTION = REFLECTOR + ".Option";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    var types = new LinkedHashSet<TypeElement>();
+    for (var annotation : annotations) {
+      for (var element : round.getElementsAnnotatedWith(annotation)) {
+        types.add((TypeElement) element.getEnclosingElement());
+      }
+    }
+    for (var type : types) {
+      if (isAccessible(type)) {
+        generate(type);
+      }
+    }
+    return false;
+  }
+
+  /** Only top-level and member types without private modifier can be accessed by the emitter. */
+  private boolean isAccessible(TypeElement type) {
+    for (Element element = type; element instanceof TypeElement; ) {
+      var nesting = ((TypeElement) element).getNestingKind();
+      if (nesting == NestingKind.ANONYMOUS || nesting == NestingKind.LOCAL) {
+        return false;
+      }
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        var message = "No emitter generated for private type";
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, type);
+        return false;
+      }
+      element = element.getEnclosingElement();
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) {
+    var elements = processingEnv.getElementUtils();
+    var packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    var binaryName = elements.getBinaryName(type).toString();
+    var simpleName =
+        packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+    var emitterName = simpleName.replace('$', '_') + "ReflectorEmitter";
+    var typeName = type.getQualifiedName().toString();
+    if (!type.getTypeParameters().isEmpty()) {
+      typeName +=
+          type.getTypeParameters().stream()
+              .map(__ -> "?")
+              .collect(Collectors.joining(", ", "<", ">"));
+    }
+    var qualifiedName = packageName.isEmpty() ? emitterName : packageName + '.' + emitterName;
+    try (var writer =
+        new PrintWriter(
+            processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+      if (!packageName.isEmpty()) {
+        writer.println("package " + packageName + ";");
+        writer.println();
+      }
+      writer.println(
+          "/** Argument emitter for {@link " + type.getQualifiedName() + "}, generated. */");
+      writer.println("public final class " + emitterName);
+      writer.println("    implements " + REFLECTOR + ".Emitter<" + typeName + "> {");
+      writer.println();
+      writer.println("  @Override");
+      writer.println("  public void emit(" + typeName + " options, " + REFLECTOR + " reflector) {");
+      for (var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+        var modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.STATIC)
+            || modifiers.contains(Modifier.PRIVATE)
+            || modifiers.contains(Modifier.TRANSIENT)) {
+          continue;
+        }
+        writer.println("    " + statement(type, field));
+      }
+      writer.println("  }");
+      writer.println("}");
+    } catch (IOException e) {
+      var message = "Generating " + qualifiedName + " failed: " + e;
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, type);
+    }
+  }
+
+  /** Create the statement that adds the arguments for the given field. */
+  private String statement(TypeElement type, VariableElement field) {
+    var name = field.getSimpleName().toString();
+    // custom option reflector method declared?
+    for (var method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+      if (isCustomMethod(method, name)) {
+        if (method.getModifiers().contains(Modifier.PRIVATE)) {
+          var message = "Custom option method must not be private";
+          processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, method);
+        }
+        return "options." + name + "(reflector);";
+      }
+    }
+    var optionName = literal(optionName(field));
+    if (field.asType().getKind() == TypeKind.BOOLEAN) {
+      return "reflector.addFlag(" + optionName + ", options." + name + ");";
+    }
+    return "reflector.addOption(" + optionName + ", options." + name + ");";
+  }
+
+  private static boolean isCustomMethod(ExecutableElement method, String name) {
+    if (!method.getSimpleName().contentEquals(name) || method.getParameters().size() != 1) {
+      return false;
+    }
+    return method.getParameters().get(0).asType().toString().equals(REFLECTOR);
+  }
+
+  /** Return the annotated option name or generate one like {@code Reflector} does. */
+  private static String optionName(VariableElement field) {
+    for (var mirror : field.getAnnotationMirrors()) {
+      var annotation = (TypeElement) mirror.getAnnotationType().asElement();
+      if (annotation.getQualifiedName().contentEquals(OPTION)) {
+        for (var entry : mirror.getElementValues().entrySet()) {
+          if (entry.getKey().getKind() == ElementKind.METHOD
+              && entry.getKey().getSimpleName().contentEquals("value")) {
+            return (String) entry.getValue().getValue();
+          }
+        }
+      }
+    }
+    return optionName(field.getSimpleName().toString());
+  }
+
+  /** Same algorithm as {@code Reflector.getOptionName(String)}. */
+  static String optionName(String fieldName) {
+    if (fieldName.equals(fieldName.toLowerCase())) {
+      return '-' + fieldName.replace('_', '-');
+    }
+    var name = new StringBuilder("--");
+    for (var c : fieldName.toCharArray()) {
+      if (Character.isUpperCase(c)) {
+        name.append('-').append(Character.toLowerCase(c));
+      } else {
+        name.append(c);
+      }
+    }
+    return name.toString();
+  }
+
+  static String literal(String value) {
+    var literal = new StringBuilder("\"");
+    for (var c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          literal.append("\\\"");
+          break;
+        case '\\':
+          literal.append("\\\\");
+          break;
+        case '\n':
+          literal.append("\\n");
+          break;
+        case '\r':
+          literal.append("\\r");
+          break;
+        case '\t':
+          literal.append("\\t");
+          break;
+        default:
+          if (c < ' ') {
+            literal.append(String.format("\\u%04x", (int) c));
+          } else {
+            literal.append(c);
+          }
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
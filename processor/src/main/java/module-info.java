@@ -0,0 +1,7 @@
+/** Module descriptor for: {@code de.sormuras.bartholdy.processor} */
+module de.sormuras.bartholdy.processor {
+  requires java.compiler;
+
+  provides javax.annotation.processing.Processor with
+      de.sormuras.bartholdy.processor.ReflectorProcessor;
+}
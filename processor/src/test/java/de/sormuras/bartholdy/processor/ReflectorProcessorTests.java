@@ -0,0 +1,136 @@
+package de.sormuras.bartholdy.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertLinesMatch;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.Reflector;
+import de.sormuras.bartholdy.jdk.Compilation;
+import de.sormuras.bartholdy.jdk.Javac;
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ReflectorProcessorTests {
+
+  private static final String OPTIONS =
+      String.join(
+          "\n",
+          "package com.example;",
+          "",
+          "import de.sormuras.bartholdy.Reflector;",
+          "import java.nio.file.Path;",
+          "import java.util.List;",
+          "",
+          "public class Options {",
+          "  @Reflector.Option(\"--ZETA\") public boolean z = true;",
+          "  public Boolean flag = Boolean.FALSE;",
+          "  public byte hex = 13;",
+          "  public int valueOfTheAnswer = 42;",
+          "  public transient String unused = \"hidden\";",
+          "  private int hidden = 123;",
+          "  public static int ignored = 456;",
+          "  public Object nullIsSkipped = null;",
+          "  public List<String> empty = List.of();",
+          "  public List<Path> paths = List.of(Path.of(\"a\"), Path.of(\"b\"));",
+          "  public String with_underscore = \"_\";",
+          "  public void hex(Reflector reflector) {",
+          "    reflector.add(\"--prime-as-hex\").add(\"0x\" + Integer.toHexString(hex));",
+          "  }",
+          "  public static class Nested {",
+          "    @Reflector.Option(\"\") public String file = \"x.txt\";",
+          "    int packagePrivate = 7;",
+          "  }",
+          "}");
+
+  @Test
+  void generatedEmitterAddsSameArgumentsAsReflection() throws Exception {
+    var compilation = compile();
+    assertTrue(compilation.getBytecode("com.example.OptionsReflectorEmitter").isPresent());
+    var options = new Loader(compilation).loadClass("com.example.Options");
+    var instance = options.getConstructor().newInstance();
+
+    var emitted = Reflector.reflect(instance);
+    var reflected = new ArrayList<String>();
+    new Reflector(instance, fields -> fields, reflected::add).reflect();
+
+    assertEquals(reflected, emitted);
+    assertLinesMatch(
+        List.of(
+            "--ZETA",
+            "-flag",
+            "false",
+            "--prime-as-hex",
+            "0xd",
+            "--value-of-the-answer",
+            "42",
+            "-paths",
+            "a" + File.pathSeparator + "b",
+            "-with-underscore",
+            "_"),
+        emitted);
+  }
+
+  @Test
+  void generatedEmitterAccessesFieldsWithoutReflection() throws Exception {
+    var compilation = compile();
+    assertTrue(compilation.getBytecode("com.example.Options_NestedReflectorEmitter").isPresent());
+    var nested = new Loader(compilation).loadClass("com.example.Options$Nested");
+    var instance = nested.getConstructor().newInstance();
+
+    assertLinesMatch(List.of("x.txt", "--package-private", "7"), Reflector.reflect(instance));
+    // the package-private field isn't accessible for the reflector
+    var reflector = new Reflector(instance, fields -> fields, new ArrayList<String>()::add);
+    assertThrows(Error.class, reflector::reflect);
+  }
+
+  @Test
+  void optionNames() {
+    assertEquals("-a", ReflectorProcessor.optionName("a"));
+    assertEquals("-a-b", ReflectorProcessor.optionName("a_b"));
+    assertEquals("--module-path", ReflectorProcessor.optionName("modulePath"));
+    assertEquals("\"a\\\"b\\\\c\\n\"", ReflectorProcessor.literal("a\"b\\c\n"));
+  }
+
+  private static Compilation compile() {
+    var configuration =
+        Configuration.of(
+            "-classpath",
+            location(Reflector.class) + File.pathSeparator + location(ReflectorProcessor.class),
+            "-processor",
+            ReflectorProcessor.class.getName());
+    var compilation = new Javac().compile(configuration, Map.of("com.example.Options", OPTIONS));
+    assertEquals(0, compilation.getExitCode(), compilation::toString);
+    return compilation;
+  }
+
+  private static String location(Class<?> type) {
+    try {
+      return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("location of " + type + " failed", e);
+    }
+  }
+
+  private static class Loader extends ClassLoader {
+
+    private final Compilation compilation;
+
+    Loader(Compilation compilation) {
+      super(Loader.class.getClassLoader());
+      this.compilation = compilation;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      var bytes = compilation.getBytecode(name).orElseThrow(() -> new ClassNotFoundException(name));
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
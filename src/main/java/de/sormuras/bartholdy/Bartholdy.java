@@ -1,25 +1,34 @@
 package de.sormuras.bartholdy;
 
+import de.sormuras.bartholdy.util.Downloader;
+import de.sormuras.bartholdy.util.SingleFlight;
+import de.sormuras.bartholdy.util.TreeCopy;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.net.URI;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.List;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.spi.ToolProvider;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public final class Bartholdy {
 
@@ -47,42 +56,67 @@ public final class Bartholdy {
   }
 
   public static Path download(URI uri, String fileName, Path tools) {
+    return download(uri, fileName, tools, null);
+  }
+
+  /**
+   * Download the file into the tools directory, unless it's already there.
+   *
+   * <p>Large files are fetched in segments and interrupted downloads are resumed, see {@link
+   * Downloader}. The SHA-256 checksum of the file is verified, if it's not {@code null}. Concurrent
+   * downloads of the same file, by other threads or processes, are waited for and reused.
+   */
+  public static Path download(URI uri, String fileName, Path tools, String sha256) {
     var localPath = tools.resolve(fileName);
     if (Files.exists(localPath)) {
       return localPath;
     }
-    try {
-      var rbc = Channels.newChannel(uri.toURL().openStream());
-      Files.createDirectories(tools);
-      try (var fos = new FileOutputStream(localPath.toFile())) {
-        fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-      }
-      return localPath;
-    } catch (IOException e) {
-      throw new UncheckedIOException("download failed", e);
-    }
+    return SingleFlight.run(
+        tools.resolve(fileName + ".lock"),
+        () -> {
+          if (Files.exists(localPath)) {
+            return localPath;
+          }
+          try {
+            return Downloads.DOWNLOADER.download(uri, localPath, sha256);
+          } catch (IOException e) {
+            throw new UncheckedIOException("download failed", e);
+          }
+        });
   }
 
   public static Path install(URI uri, Path tools) {
     return install(uri, fileName(uri), tools);
   }
 
+  /**
+   * Download and extract the zip file into the tools directory, unless it's already there.
+   *
+   * <p>Concurrent installations of the same zip file, by other threads or processes, are waited for
+   * and reused.
+   */
   public static Path install(URI uri, String zip, Path tools) {
+    return SingleFlight.run(tools.resolve(zip + ".install.lock"), () -> extract(uri, zip, tools));
+  }
+
+  private static Path extract(URI uri, String zip, Path tools) {
     // uri = "https://archive.apache.org/dist/ant/binaries/apache-ant-1.10.4-bin.zip"
     // zip = "apache-ant-1.10.4-bin.zip"
     var localZip = download(uri, zip, tools);
-    try {
-      // extract
-      var jarTool = ToolProvider.findFirst("jar").orElseThrow();
-      var listing = new StringWriter();
-      var printWriter = new PrintWriter(listing);
-      jarTool.run(printWriter, printWriter, "--list", "--file", localZip.toString());
-      // TODO Find better way to extract root folder name...
-      var root = Path.of(listing.toString().split("\\R")[0]);
+    try (var zipFile = new ZipFile(localZip.toFile())) {
+      // entries are read from the central directory, the first one names the root folder
+      var first = zipFile.stream().findFirst().orElseThrow(() -> new IOException("empty: " + zip));
+      var root = first.getName().split("/")[0];
       var home = tools.resolve(root);
       if (Files.notExists(home)) {
-        jarTool.run(System.out, System.err, "--extract", "--file", localZip.toString());
-        Files.move(root, home);
+        // extract into a staging directory, an existing home is always complete
+        var staging = Files.createTempDirectory(tools, root + "-");
+        try {
+          unzip(zipFile, localZip, staging);
+          Files.move(staging.resolve(root), home, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+          treeDelete(staging);
+        }
       }
       // done
       return home.normalize().toAbsolutePath();
@@ -91,6 +125,62 @@ public final class Bartholdy {
     }
   }
 
+  /**
+   * Extract all entries of the zip file into the target directory.
+   *
+   * <p>Files are written in parallel. Unix permissions stored in the zip file are applied, if the
+   * default file system supports them. Entries resolving to a path outside of the target directory
+   * are rejected before anything is written. Existing files are replaced.
+   */
+  public static void unzip(Path zip, Path target) {
+    try (var zipFile = new ZipFile(zip.toFile())) {
+      unzip(zipFile, zip, target);
+    } catch (IOException e) {
+      throw new UncheckedIOException("unzip failed", e);
+    }
+  }
+
+  private static void unzip(ZipFile zipFile, Path zip, Path target) throws IOException {
+    var base = target.toAbsolutePath().normalize();
+    // a later entry with the same name replaces an earlier one, don't write both in parallel
+    var files = new LinkedHashMap<Path, ZipEntry>();
+    for (var entry : zipFile.stream().collect(Collectors.toList())) {
+      var path = base.resolve(entry.getName()).normalize();
+      if (!path.startsWith(base)) {
+        throw new IOException("entry outside of target directory: " + entry.getName());
+      }
+      if (entry.isDirectory()) {
+        Files.createDirectories(path);
+      } else {
+        Files.createDirectories(path.getParent());
+        files.put(path, entry);
+      }
+    }
+    var posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    var modes = posix ? ZipModes.read(zip) : Map.<String, Integer>of();
+    LOG.log(
+        System.Logger.Level.DEBUG, "unzip {0} file(s) of {1} into {2}", files.size(), zip, base);
+    try {
+      files.values().parallelStream().forEach(entry -> write(zipFile, entry, base, modes));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static void write(
+      ZipFile zipFile, ZipEntry entry, Path base, Map<String, Integer> modes) {
+    var path = base.resolve(entry.getName());
+    try (var stream = zipFile.getInputStream(entry)) {
+      Files.copy(stream, path, StandardCopyOption.REPLACE_EXISTING);
+      var mode = modes.get(entry.getName());
+      if (mode != null) {
+        Files.setPosixFilePermissions(path, ZipModes.permissions(mode));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("writing " + entry.getName() + " failed", e);
+    }
+  }
+
   public static String read(Path jar, String entry, String delimiter, String defaultValue) {
     try (var fs = FileSystems.newFileSystem(jar, null)) {
       for (var root : fs.getRootDirectories()) {
@@ -138,9 +228,22 @@ public final class Bartholdy {
 
   /** Copy source directory to target directory. */
   public static void treeCopy(Path source, Path target, Predicate<Path> filter) {
+    treeCopy(source, target, filter, false);
+  }
+
+  /**
+   * Copy source directory to target directory and return the numbers of files handled.
+   *
+   * <p>Files are copied in parallel, target files with the same size and last modified time as
+   * their source files are skipped. In linking mode, files are hard-linked instead of copied.
+   *
+   * @see TreeCopy
+   */
+  public static TreeCopy.Summary treeCopy(
+      Path source, Path target, Predicate<Path> filter, boolean linking) {
     LOG.log(System.Logger.Level.DEBUG, "treeCopy(source:`{0}`, target:`{1}`)", source, target);
     if (!Files.exists(source)) {
-      return;
+      return new TreeCopy.Summary();
     }
     if (!Files.isDirectory(source)) {
       throw new IllegalArgumentException("source must be a directory: " + source);
@@ -151,31 +254,16 @@ public final class Bartholdy {
       }
       try {
         if (Files.isSameFile(source, target)) {
-          return;
+          return new TreeCopy.Summary();
         }
       } catch (IOException e) {
         throw new UncheckedIOException("copyTree failed", e);
       }
     }
-    try (Stream<Path> stream = Files.walk(source).sorted()) {
-      int counter = 0;
-      List<Path> paths = stream.collect(Collectors.toList());
-      for (Path path : paths) {
-        Path destination = target.resolve(source.relativize(path));
-        if (Files.isDirectory(path)) {
-          Files.createDirectories(destination);
-          continue;
-        }
-        if (filter.test(path)) {
-          Files.copy(path, destination, StandardCopyOption.REPLACE_EXISTING);
-          counter++;
-        }
-      }
-      LOG.log(
-          System.Logger.Level.DEBUG,
-          "copied {0} file(s) of {1} elements...%n",
-          counter,
-          paths.size());
+    try {
+      var summary = new TreeCopy().setFilter(filter).setLinking(linking).copy(source, target);
+      LOG.log(System.Logger.Level.DEBUG, "treeCopy finished: {0}", summary);
+      return summary;
     } catch (IOException e) {
       throw new UncheckedIOException("copyTree failed", e);
     }
@@ -240,4 +328,81 @@ public final class Bartholdy {
   private Bartholdy() {
     throw new UnsupportedOperationException();
   }
+
+  /** Reads unix file modes from the central directory of a zip file. */
+  private static final class ZipModes {
+
+    /** Return the unix file modes of all entries made on unix, mapped by entry name. */
+    static Map<String, Integer> read(Path zip) throws IOException {
+      try (var channel = FileChannel.open(zip)) {
+        // end of central directory record: 22 bytes followed by a comment of up to 65535 bytes
+        var tail = ByteBuffer.allocate((int) Math.min(channel.size(), 22 + 0xFFFF));
+        read(channel, tail, channel.size() - tail.capacity());
+        tail.flip().order(ByteOrder.LITTLE_ENDIAN);
+        var end = tail.limit() - 22;
+        while (end >= 0 && tail.getInt(end) != 0x06054b50) {
+          end--;
+        }
+        if (end < 0) {
+          throw new IOException("end of central directory not found: " + zip);
+        }
+        var size = Integer.toUnsignedLong(tail.getInt(end + 12));
+        var offset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        if (size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+          LOG.log(
+              System.Logger.Level.DEBUG,
+              "zip64 central directory not supported, ignoring file modes: {0}",
+              zip);
+          return Map.of();
+        }
+        var directory = ByteBuffer.allocate(Math.toIntExact(size));
+        read(channel, directory, offset);
+        directory.flip().order(ByteOrder.LITTLE_ENDIAN);
+        var modes = new HashMap<String, Integer>();
+        while (directory.remaining() >= 46
+            && directory.getInt(directory.position()) == 0x02014b50) {
+          var header = directory.position();
+          var host = (directory.getShort(header + 4) >> 8) & 0xFF;
+          var nameLength = Short.toUnsignedInt(directory.getShort(header + 28));
+          var extraLength = Short.toUnsignedInt(directory.getShort(header + 30));
+          var commentLength = Short.toUnsignedInt(directory.getShort(header + 32));
+          var attributes = directory.getInt(header + 38);
+          var name = new byte[nameLength];
+          directory.position(header + 46).get(name);
+          var mode = attributes >>> 16;
+          if (host == 3 && mode != 0) {
+            modes.put(new String(name, StandardCharsets.UTF_8), mode);
+          }
+          directory.position(header + 46 + nameLength + extraLength + commentLength);
+        }
+        return modes;
+      }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("unexpected end of zip file");
+        }
+      }
+    }
+
+    /** Convert the permission bits of the unix file mode. */
+    static Set<PosixFilePermission> permissions(int mode) {
+      var permissions = EnumSet.noneOf(PosixFilePermission.class);
+      var values = PosixFilePermission.values(); // OWNER_READ ... OTHERS_EXECUTE
+      for (int i = 0; i < values.length; i++) {
+        if ((mode & (1 << (values.length - 1 - i))) != 0) {
+          permissions.add(values[i]);
+        }
+      }
+      return permissions;
+    }
+  }
+
+  /** Holder of the lazily created downloader and its HTTP client. */
+  private static final class Downloads {
+    static final Downloader DOWNLOADER = new Downloader();
+  }
 }
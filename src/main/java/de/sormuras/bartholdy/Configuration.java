@@ -17,6 +17,7 @@
 package de.sormuras.bartholdy;
 
 import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
 import static java.util.Objects.requireNonNull;
 
 import java.nio.file.Path;
@@ -25,6 +26,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /** Tool configuration providing environment and execution data. */
 public interface Configuration {
@@ -47,6 +52,41 @@ public interface Configuration {
 
   Duration getTimeout();
 
+  /** Files and directories read by the tool, their content is part of a cached result's key. */
+  default List<Path> getInputPaths() {
+    return List.of();
+  }
+
+  /** Maximum number of bytes captured in memory per output stream, defaults to 64 MiB. */
+  default long getOutputLimit() {
+    return 64 * 1024 * 1024;
+  }
+
+  /** Maximum number of bytes per output stream kept on the heap, defaults to 8 MiB. */
+  default long getOutputSpillThreshold() {
+    return 8 * 1024 * 1024;
+  }
+
+  /** Maximum number of bytes per output stream spilled to a file, unbounded by default. */
+  default long getOutputSpillLimit() {
+    return Long.MAX_VALUE;
+  }
+
+  /** Subscribers receiving lines of output streams, like "out" and "err", while running. */
+  default Map<String, Flow.Subscriber<? super String>> getOutputSubscribers() {
+    return Map.of();
+  }
+
+  /** Capture lines of subscribed output streams in the result as well, defaults to {@code true}. */
+  default boolean isOutputRetained() {
+    return true;
+  }
+
+  /** Predicates per output stream, the first matching line terminates a running process. */
+  default Map<String, Predicate<? super String>> getTerminationPredicates() {
+    return Map.of();
+  }
+
   default Builder toBuilder() {
     return builder()
         .setArguments(new ArrayList<>(getArguments()))
@@ -62,11 +102,21 @@ public interface Configuration {
     private Path temporaryDirectory = Path.of(System.getProperty("java.io.tmpdir"));
     private Path workingDirectory = Path.of(".").normalize().toAbsolutePath();
     private Duration timeout = Duration.ofSeconds(9);
+    private List<Path> inputPaths = new ArrayList<>();
+    private long outputLimit = Configuration.super.getOutputLimit();
+    private long outputSpillThreshold = Configuration.super.getOutputSpillThreshold();
+    private long outputSpillLimit = Configuration.super.getOutputSpillLimit();
+    private Map<String, Flow.Subscriber<? super String>> outputSubscribers = new HashMap<>();
+    private boolean outputRetained = true;
+    private Map<String, Predicate<? super String>> terminationPredicates = new HashMap<>();
 
     public Configuration build() {
       mutable = false;
       arguments = List.copyOf(arguments);
       environment = Map.copyOf(environment);
+      inputPaths = List.copyOf(inputPaths);
+      outputSubscribers = Map.copyOf(outputSubscribers);
+      terminationPredicates = Map.copyOf(terminationPredicates);
       return this;
     }
 
@@ -77,6 +127,12 @@ public interface Configuration {
           + arguments
           + ", timeout="
           + timeout
+          + ", outputLimit="
+          + outputLimit
+          + ", outputSpillThreshold="
+          + outputSpillThreshold
+          + ", outputSpillLimit="
+          + outputSpillLimit
           + ", environment="
           + environment
           + ", temporaryDirectory="
@@ -187,5 +243,151 @@ public interface Configuration {
       this.timeout = timeout;
       return this;
     }
+
+    @Override
+    public List<Path> getInputPaths() {
+      return inputPaths;
+    }
+
+    public Builder addInputPath(Path inputPath) {
+      checkMutableState();
+      inputPaths.add(requireNonNull(inputPath, "inputPath must not be null"));
+      return this;
+    }
+
+    @Override
+    public long getOutputLimit() {
+      return outputLimit;
+    }
+
+    public Builder setOutputLimit(long outputLimit) {
+      checkMutableState();
+      if (outputLimit < 0) {
+        throw new IllegalArgumentException("outputLimit must not be negative: " + outputLimit);
+      }
+      this.outputLimit = outputLimit;
+      return this;
+    }
+
+    @Override
+    public long getOutputSpillThreshold() {
+      return outputSpillThreshold;
+    }
+
+    public Builder setOutputSpillThreshold(long outputSpillThreshold) {
+      checkMutableState();
+      if (outputSpillThreshold < 0) {
+        throw new IllegalArgumentException(
+            "outputSpillThreshold must not be negative: " + outputSpillThreshold);
+      }
+      this.outputSpillThreshold = outputSpillThreshold;
+      return this;
+    }
+
+    @Override
+    public long getOutputSpillLimit() {
+      return outputSpillLimit;
+    }
+
+    public Builder setOutputSpillLimit(long outputSpillLimit) {
+      checkMutableState();
+      if (outputSpillLimit < 0) {
+        throw new IllegalArgumentException(
+            "outputSpillLimit must not be negative: " + outputSpillLimit);
+      }
+      this.outputSpillLimit = outputSpillLimit;
+      return this;
+    }
+
+    @Override
+    public Map<String, Flow.Subscriber<? super String>> getOutputSubscribers() {
+      return outputSubscribers;
+    }
+
+    /**
+     * Publish lines of the output stream to the subscriber while the tool is running.
+     *
+     * <p>Lines are buffered up to {@link Flow#defaultBufferSize()}, the tool's output is blocked
+     * while the buffer is full.
+     */
+    public Builder setOutputSubscriber(String key, Flow.Subscriber<? super String> subscriber) {
+      checkMutableState();
+      requireNonNull(key, "key must not be null");
+      requireNonNull(subscriber, "subscriber must not be null");
+      outputSubscribers.put(key, subscriber);
+      return this;
+    }
+
+    /** Hand lines of the output stream to the consumer while the tool is running. */
+    public Builder setOutputConsumer(String key, Consumer<? super String> consumer) {
+      requireNonNull(consumer, "consumer must not be null");
+      return setOutputSubscriber(key, new ConsumingSubscriber(consumer));
+    }
+
+    @Override
+    public boolean isOutputRetained() {
+      return outputRetained;
+    }
+
+    public Builder setOutputRetained(boolean outputRetained) {
+      checkMutableState();
+      this.outputRetained = outputRetained;
+      return this;
+    }
+
+    @Override
+    public Map<String, Predicate<? super String>> getTerminationPredicates() {
+      return terminationPredicates;
+    }
+
+    /**
+     * Terminate the running process as soon as a line of the output stream matches.
+     *
+     * <p>The predicate is called for each line in order, so it may count matches, like {@code line
+     * -> line.startsWith("error:") && ++errors[0] >= 10}. In-process tools are not terminated.
+     */
+    public Builder setTerminationPredicate(String key, Predicate<? super String> predicate) {
+      checkMutableState();
+      requireNonNull(key, "key must not be null");
+      requireNonNull(predicate, "predicate must not be null");
+      terminationPredicates.put(key, predicate);
+      return this;
+    }
+
+    /** Terminate the running process as soon as the regex is found in a line of the output. */
+    public Builder setTerminationPattern(String key, String regex) {
+      return setTerminationPredicate(key, Pattern.compile(regex).asPredicate());
+    }
+  }
+
+  /** Subscriber requesting all lines, delivered one after the other to a consumer. */
+  class ConsumingSubscriber implements Flow.Subscriber<String> {
+
+    private static final System.Logger LOG = System.getLogger(ConsumingSubscriber.class.getName());
+
+    private final Consumer<? super String> consumer;
+
+    ConsumingSubscriber(Consumer<? super String> consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+      consumer.accept(line);
+    }
+
+    /** Log the error, the consumer doesn't receive any further lines. */
+    @Override
+    public void onError(Throwable throwable) {
+      LOG.log(WARNING, "Publishing output lines failed", throwable);
+    }
+
+    @Override
+    public void onComplete() {}
   }
 }
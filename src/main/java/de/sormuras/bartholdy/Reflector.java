@@ -5,14 +5,19 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -26,18 +31,42 @@ public class Reflector {
     String value();
   }
 
+  /**
+   * Add arguments for an options object without reflection.
+   *
+   * <p>Implementations named {@code <type>ReflectorEmitter}, with {@code $} of nested type names
+   * replaced by {@code _}, are usually generated at compile time by the Bartholdy processor. A
+   * public emitter in the same package as the options type is used in place of reflection.
+   */
+  public interface Emitter<T> {
+    void emit(T options, Reflector reflector);
+  }
+
   public static List<String> reflect(Object options) {
     var arguments = new ArrayList<String>();
     new Reflector(options, arguments::add).reflect();
     return List.copyOf(arguments);
   }
 
+  private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType CUSTOM =
+      MethodType.methodType(void.class, Object.class, Reflector.class);
+
+  /** Per-class reflection plan, resolved once on first use. */
+  private static final ClassValue<Plan> PLANS =
+      new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+          return new Plan(type);
+        }
+      };
+
   private final Object options;
   private final UnaryOperator<Stream<Field>> operator;
   private final Consumer<String> consumer;
 
   public Reflector(Object options, Consumer<String> consumer) {
-    this(options, UnaryOperator.identity(), consumer);
+    this(options, null, consumer);
   }
 
   public Reflector(
@@ -64,45 +93,46 @@ public class Reflector {
 
   /** Visit reflected options after a custom stream operator did its work. */
   public void reflect() {
-    var stream =
-        Arrays.stream(options.getClass().getDeclaredFields())
-            .filter(field -> !field.isSynthetic())
-            .filter(field -> !Modifier.isStatic(field.getModifiers()))
-            .filter(field -> !Modifier.isPrivate(field.getModifiers()))
-            .filter(field -> !Modifier.isTransient(field.getModifiers()));
-    stream = operator.apply(stream);
-    stream.forEach(this::reflectField);
+    var plan = PLANS.get(options.getClass());
+    if (operator == null) {
+      if (plan.emitter != null) {
+        plan.emitter.emit(options, this);
+        return;
+      }
+      for (var entry : plan.entries) {
+        reflectEntry(entry);
+      }
+      return;
+    }
+    var stream = operator.apply(Arrays.stream(plan.fields));
+    stream.forEach(field -> reflectEntry(plan.entry(field)));
   }
 
-  private void reflectField(Field field) {
+  private void reflectEntry(Entry entry) {
     try {
-      reflectFieldThrowing(field);
-    } catch (ReflectiveOperationException e) {
-      throw new Error("reflecting field '" + field + "' failed for " + options, e);
+      reflectEntryThrowing(entry);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new Error("reflecting field '" + entry.field + "' failed for " + options, e);
     }
   }
 
-  private void reflectFieldThrowing(Field field) throws ReflectiveOperationException {
+  private void reflectEntryThrowing(Entry entry) throws Throwable {
 
     // custom option reflector method declared?
-    try {
-      options.getClass().getDeclaredMethod(field.getName(), Reflector.class).invoke(options, this);
-      return;
-    } catch (NoSuchMethodException e) {
-      // fall-through
-    }
-
-    // get the field's value
-    var value = field.get(options);
-    // skip null field value
-    if (value == null) {
+    if (entry.custom != null) {
+      entry.custom.invokeExact(options, this);
       return;
     }
-    // skip empty collections
-    if (value instanceof Collection && ((Collection) value).isEmpty()) {
+    if (entry.customMethod != null) {
+      entry.customMethod.invoke(options, this);
       return;
     }
 
+    // get the field's value
+    var value = entry.getter == null ? entry.field.get(options) : entry.getter.invokeExact(options);
+
     //    // common add helper available?
     //    try {
     //      Helper.class.getDeclaredMethod(field.getName(), field.getType()).invoke(helper, value);
@@ -111,17 +141,37 @@ public class Reflector {
     //      // fall-through
     //    }
 
-    // get or generate option name
-    var optional = Optional.ofNullable(field.getAnnotation(Option.class));
-    var optionName = optional.map(Option::value).orElse(getOptionName(field.getName()));
-
     // is it an omissible boolean flag?
-    if (field.getType() == boolean.class) {
-      if (field.getBoolean(options)) {
-        add(optionName);
-      }
+    if (entry.flag) {
+      addFlag(entry.optionName, (Boolean) value);
       return;
     }
+    addOption(entry.optionName, value);
+  }
+
+  /** Add the option name, if the flag is set. */
+  public Reflector addFlag(String optionName, boolean flag) {
+    if (flag) {
+      add(optionName);
+    }
+    return this;
+  }
+
+  /**
+   * Add the option name, unless it is empty, and the value.
+   *
+   * <p>Nothing is added for a {@code null} value or an empty collection. A collection of paths is
+   * added as a single argument joined by {@link File#pathSeparator}.
+   */
+  public Reflector addOption(String optionName, Object value) {
+    // skip null field value
+    if (value == null) {
+      return this;
+    }
+    // skip empty collections
+    if (value instanceof Collection && ((Collection) value).isEmpty()) {
+      return this;
+    }
     // add option name only if it is not empty
     if (!optionName.isEmpty()) {
       add(optionName);
@@ -143,15 +193,116 @@ public class Reflector {
       if (head instanceof Path) {
         @SuppressWarnings("unchecked")
         var paths = (Collection<Path>) value;
-        add(paths);
-        return;
+        return add(paths);
       }
     }
     // finally, add string representation of the value
-    add(value.toString());
+    return add(value.toString());
+  }
+
+  /** Reflected fields of a class with their resolved accessors and option names. */
+  private static final class Plan {
+
+    final Field[] fields;
+    final Entry[] entries;
+    final Map<Field, Entry> map;
+    final Map<String, Method> customs;
+    final Emitter<Object> emitter;
+
+    Plan(Class<?> type) {
+      var lookup = MethodHandles.lookup();
+      this.customs = new HashMap<>();
+      for (var method : type.getDeclaredMethods()) {
+        var parameters = method.getParameterTypes();
+        if (parameters.length == 1 && parameters[0] == Reflector.class) {
+          customs.put(method.getName(), method);
+        }
+      }
+      this.fields =
+          Arrays.stream(type.getDeclaredFields())
+              .filter(field -> !field.isSynthetic())
+              .filter(field -> !Modifier.isStatic(field.getModifiers()))
+              .filter(field -> !Modifier.isPrivate(field.getModifiers()))
+              .filter(field -> !Modifier.isTransient(field.getModifiers()))
+              .toArray(Field[]::new);
+      this.entries = new Entry[fields.length];
+      this.map = new HashMap<>();
+      for (int i = 0; i < fields.length; i++) {
+        entries[i] = new Entry(lookup, fields[i], customs.get(fields[i].getName()));
+        map.put(fields[i], entries[i]);
+      }
+      this.emitter = emitter(type);
+    }
+
+    /** Load and instantiate the generated emitter for the given type, if there's one. */
+    @SuppressWarnings("unchecked")
+    private static Emitter<Object> emitter(Class<?> type) {
+      var packageName = type.getPackageName();
+      var simpleName =
+          type.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+      var prefix = packageName.isEmpty() ? "" : packageName + '.';
+      var name = prefix + simpleName.replace('$', '_') + "ReflectorEmitter";
+      try {
+        var emitter = Class.forName(name, true, type.getClassLoader());
+        if (!Emitter.class.isAssignableFrom(emitter)) {
+          return null;
+        }
+        return (Emitter<Object>) emitter.getConstructor().newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // no (accessible) emitter available, reflect fields
+        return null;
+      }
+    }
+
+    /** Return the cached entry or resolve one for a field supplied by a custom stream operator. */
+    Entry entry(Field field) {
+      var entry = map.get(field);
+      if (entry != null) {
+        return entry;
+      }
+      // custom methods are declared by the options class, even for inherited fields
+      return new Entry(MethodHandles.lookup(), field, customs.get(field.getName()));
+    }
+  }
+
+  /** Resolved accessors of a single field. */
+  private static final class Entry {
+
+    final Field field;
+    final String optionName;
+    final boolean flag;
+    /** Field getter of type {@code (Object)Object} or {@code null} if not accessible. */
+    final MethodHandle getter;
+    /** Custom option reflector method or {@code null} if not declared. */
+    final Method customMethod;
+    /** Custom method of type {@code (Object,Reflector)void} or {@code null} if not accessible. */
+    final MethodHandle custom;
+
+    Entry(MethodHandles.Lookup lookup, Field field, Method custom) {
+      this.field = field;
+      var option = field.getAnnotation(Option.class);
+      this.optionName = option != null ? option.value() : getOptionName(field.getName());
+      this.flag = field.getType() == boolean.class;
+      this.getter = unreflect(() -> lookup.unreflectGetter(field), GETTER);
+      this.customMethod = custom;
+      this.custom = custom == null ? null : unreflect(() -> lookup.unreflect(custom), CUSTOM);
+    }
+  }
+
+  private interface Unreflector {
+    MethodHandle unreflect() throws IllegalAccessException;
+  }
+
+  private static MethodHandle unreflect(Unreflector unreflector, MethodType type) {
+    try {
+      return unreflector.unreflect().asType(type);
+    } catch (IllegalAccessException e) {
+      // not accessible, fall back to core reflection that reports the access error when used
+      return null;
+    }
   }
 
-  private String getOptionName(String fieldName) {
+  private static String getOptionName(String fieldName) {
     var hasUppercase = !fieldName.equals(fieldName.toLowerCase());
     var defaultName = new StringBuilder();
     if (hasUppercase) {
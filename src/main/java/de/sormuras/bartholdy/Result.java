@@ -18,13 +18,19 @@ package de.sormuras.bartholdy;
 
 import static java.util.Objects.requireNonNull;
 
+import de.sormuras.bartholdy.util.Lines;
+import de.sormuras.bartholdy.util.MappedLines;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
-/** Result of a tool run. */
-public interface Result {
+/** Result of a tool run, closing it releases output spilled to temporary files. */
+public interface Result extends AutoCloseable {
 
   static Builder builder() {
     return new Builder();
@@ -40,14 +46,34 @@ public interface Result {
 
   List<String> getOutputLines(String key);
 
+  /** Return the keys of all outputs, sorted by their natural order, defaults to an empty set. */
+  default Set<String> getOutputKeys() {
+    return Set.of();
+  }
+
+  /** Stream lines of the given output without materializing all of them as strings. */
+  default Stream<CharSequence> getOutputLineStream(String key) {
+    return getOutputLines(key).stream().map(CharSequence.class::cast);
+  }
+
   boolean isTimedOut();
 
+  /** Return {@code true} if the tool was terminated due to a line matching a predicate. */
+  default boolean isTerminatedEarly() {
+    return false;
+  }
+
+  /** Release resources held by the output lines, which must not be accessed afterwards. */
+  @Override
+  default void close() {}
+
   class Builder implements Result {
 
     private int exitCode = Integer.MIN_VALUE;
     private Duration duration = Duration.ZERO;
     private Map<String, List<String>> lines = new HashMap<>();
     private boolean timedOut;
+    private boolean terminatedEarly;
 
     public Result build() {
       requireNonNull(duration, "duration must not be null");
@@ -61,6 +87,8 @@ public interface Result {
           + exitCode
           + ", timedOut="
           + timedOut
+          + ", terminatedEarly="
+          + terminatedEarly
           + ", duration="
           + duration
           + ", lines="
@@ -102,6 +130,20 @@ public interface Result {
       return lines.getOrDefault(key, List.of());
     }
 
+    @Override
+    public Set<String> getOutputKeys() {
+      return Collections.unmodifiableSet(new TreeSet<>(lines.keySet()));
+    }
+
+    @Override
+    public Stream<CharSequence> getOutputLineStream(String key) {
+      var list = getOutputLines(key);
+      if (list instanceof Lines) {
+        return ((Lines) list).sequences();
+      }
+      return Result.super.getOutputLineStream(key);
+    }
+
     @Override
     public boolean isTimedOut() {
       return timedOut;
@@ -111,5 +153,24 @@ public interface Result {
       this.timedOut = timedOut;
       return this;
     }
+
+    @Override
+    public boolean isTerminatedEarly() {
+      return terminatedEarly;
+    }
+
+    public Builder setTerminatedEarly(boolean terminatedEarly) {
+      this.terminatedEarly = terminatedEarly;
+      return this;
+    }
+
+    @Override
+    public void close() {
+      for (var list : lines.values()) {
+        if (list instanceof MappedLines) {
+          ((MappedLines) list).close();
+        }
+      }
+    }
   }
 }
@@ -16,7 +16,13 @@
 
 package de.sormuras.bartholdy;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /** Tool interface. */
 public interface Tool {
@@ -29,10 +35,37 @@ public interface Tool {
 
   String getVersion();
 
+  /** Return paths to files or directories read by this tool, besides the configured inputs. */
+  default List<Path> getInputPaths() {
+    return List.of();
+  }
+
+  /** Return properties, like installation paths, that affect results besides name and version. */
+  default Map<String, String> getCacheProperties() {
+    return Map.of();
+  }
+
+  /** Return {@code false} if results can't be reused for runs with the same inputs. */
+  default boolean isCacheable() {
+    return true;
+  }
+
   default int run(Object... args) {
     Objects.requireNonNull(args, "args must not be null");
     return run(Configuration.of(args)).getExitCode();
   }
 
   Result run(Configuration configuration);
+
+  /** Run this tool asynchronously using the common fork-join pool. */
+  default CompletableFuture<Result> runAsync(Configuration configuration) {
+    return runAsync(configuration, ForkJoinPool.commonPool());
+  }
+
+  /** Run this tool asynchronously using the given executor. */
+  default CompletableFuture<Result> runAsync(Configuration configuration, Executor executor) {
+    Objects.requireNonNull(configuration, "configuration must not be null");
+    Objects.requireNonNull(executor, "executor must not be null");
+    return CompletableFuture.supplyAsync(() -> run(configuration), executor);
+  }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2018 Christian Stein
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.bartholdy;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/** Run a single tool with many configurations in parallel. */
+public class ToolBatch {
+
+  /** Failure handling policy. */
+  public enum Policy {
+    /** Run all configurations, regardless of failures. */
+    COLLECT_ALL,
+
+    /** Stop launching new runs and cancel running ones after the first failure. */
+    FAIL_FAST
+  }
+
+  private final System.Logger logger = System.getLogger(getClass().getCanonicalName());
+  private final Tool tool;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private long memoryPerRun = 0;
+  private Policy policy = Policy.COLLECT_ALL;
+
+  public ToolBatch(Tool tool) {
+    this.tool = requireNonNull(tool, "tool must not be null");
+  }
+
+  @Override
+  public String toString() {
+    return "ToolBatch{"
+        + "tool="
+        + tool.getName()
+        + ", parallelism="
+        + parallelism
+        + ", memoryPerRun="
+        + memoryPerRun
+        + ", policy="
+        + policy
+        + '}';
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /** Set the maximum number of concurrent runs, defaults to the number of available cores. */
+  public ToolBatch setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public long getMemoryPerRun() {
+    return memoryPerRun;
+  }
+
+  /**
+   * Set the estimated number of heap bytes a single run consumes, {@code 0} means unknown.
+   *
+   * <p>A positive value limits the number of concurrent runs to what fits into the maximum heap
+   * size of the current runtime.
+   */
+  public ToolBatch setMemoryPerRun(long memoryPerRun) {
+    if (memoryPerRun < 0) {
+      throw new IllegalArgumentException("memoryPerRun must not be negative: " + memoryPerRun);
+    }
+    this.memoryPerRun = memoryPerRun;
+    return this;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  public ToolBatch setPolicy(Policy policy) {
+    this.policy = requireNonNull(policy, "policy must not be null");
+    return this;
+  }
+
+  /** Compute the number of concurrent runs honoring the memory constraint. */
+  public int getEffectiveParallelism() {
+    if (memoryPerRun == 0) {
+      return parallelism;
+    }
+    var fitting = Runtime.getRuntime().maxMemory() / memoryPerRun;
+    return (int) Math.max(1, Math.min(parallelism, fitting));
+  }
+
+  public Summary run(Configuration... configurations) {
+    return run(Arrays.asList(configurations));
+  }
+
+  /** Run the tool once per configuration and return all results in configuration order. */
+  public Summary run(List<Configuration> configurations) {
+    var start = Instant.now();
+    var size = configurations.size();
+    var threads = Math.max(1, Math.min(getEffectiveParallelism(), size));
+    logger.log(DEBUG, "Running {0} configuration(s) with {1} thread(s)", size, threads);
+    var failed = new AtomicBoolean();
+    var executor =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              var thread = new Thread(runnable, "bartholdy-batch-" + tool.getName());
+              thread.setDaemon(true);
+              return thread;
+            });
+    var futures = new ArrayList<Future<Result>>();
+    try {
+      for (var configuration : configurations) {
+        var index = futures.size();
+        Callable<Result> callable =
+            () -> {
+              if (failed.get()) {
+                return cancelled();
+              }
+              var result = runSafely(configuration);
+              if (result.getExitCode() != 0 && policy == Policy.FAIL_FAST) {
+                if (failed.compareAndSet(false, true)) {
+                  logger.log(DEBUG, "Run #{0} failed, cancelling others...", index);
+                  synchronized (futures) {
+                    for (int i = 0; i < futures.size(); i++) {
+                      if (i != index) {
+                        futures.get(i).cancel(true);
+                      }
+                    }
+                  }
+                }
+              }
+              return result;
+            };
+        synchronized (futures) {
+          futures.add(executor.submit(callable));
+        }
+      }
+      var results = new ArrayList<Result>();
+      for (var future : futures) {
+        results.add(await(future));
+      }
+      return new Summary(results, Duration.between(start, Instant.now()), failed.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Result runSafely(Configuration configuration) {
+    try {
+      return tool.run(configuration);
+    } catch (Exception e) {
+      return failed(e);
+    }
+  }
+
+  private Result await(Future<Result> future) {
+    try {
+      return future.get();
+    } catch (CancellationException e) {
+      return cancelled();
+    } catch (ExecutionException e) {
+      return failed(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failed(e);
+    }
+  }
+
+  /** Create a result describing the throwable, like {@code CyclesDetector} does. */
+  static Result failed(Throwable throwable) {
+    var stackTrace = Arrays.stream(throwable.getStackTrace()).map(Object::toString);
+    return Result.builder()
+        .setExitCode(-1)
+        .setOutput("out", throwable.toString())
+        .setOutput("err", stackTrace.collect(Collectors.toList()))
+        .build();
+  }
+
+  private static Result cancelled() {
+    return Result.builder().setOutput("err", "cancelled due to previous failure").build();
+  }
+
+  /** Results and aggregated timing of a batch run. */
+  public static class Summary {
+
+    private final List<Result> results;
+    private final Duration duration;
+    private final boolean aborted;
+
+    Summary(List<Result> results, Duration duration, boolean aborted) {
+      this.results = List.copyOf(results);
+      this.duration = duration;
+      this.aborted = aborted;
+    }
+
+    @Override
+    public String toString() {
+      return "Summary{"
+          + "results="
+          + results.size()
+          + ", failures="
+          + getFailures().size()
+          + ", duration="
+          + duration
+          + ", cumulativeDuration="
+          + getCumulativeDuration()
+          + ", aborted="
+          + aborted
+          + '}';
+    }
+
+    /** Results in the same order as the configurations passed to the batch. */
+    public List<Result> getResults() {
+      return results;
+    }
+
+    /** Results with a non-zero exit code, including cancelled runs. */
+    public List<Result> getFailures() {
+      return results.stream().filter(r -> r.getExitCode() != 0).collect(Collectors.toList());
+    }
+
+    /** Wall-clock time of the entire batch. */
+    public Duration getDuration() {
+      return duration;
+    }
+
+    /** Sum of all single run durations. */
+    public Duration getCumulativeDuration() {
+      return results.stream().map(Result::getDuration).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /** Return {@code true} if the fail-fast policy stopped the batch early. */
+    public boolean isAborted() {
+      return aborted;
+    }
+
+    public boolean isSuccessful() {
+      return getFailures().isEmpty();
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2018 Christian Stein
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.bartholdy;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import de.sormuras.bartholdy.util.Sha256;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Disk store of tool results, skipping runs with the same inputs as a recorded run.
+ *
+ * <p>The key of a run covers the tool's name, version and {@linkplain Tool#getCacheProperties()
+ * properties}, the arguments, environment and working directory of the configuration and the
+ * content of all input paths of the configuration and of the tool. Relative input paths are
+ * resolved against the working directory. Tools that aren't {@linkplain Tool#isCacheable()
+ * cacheable} always run. Only results of successful runs, exiting with code zero, are recorded.
+ *
+ * <p>Each result is stored in a single file, written to a temporary file first and moved into place
+ * atomically. Reading a result updates its last modified time. When the store exceeds its maximum
+ * size, least recently used results are deleted while holding a file lock, so several JVMs may
+ * share a store directory.
+ */
+public class ToolCache {
+
+  private static final System.Logger LOG = System.getLogger(ToolCache.class.getName());
+  private static final String SUFFIX = ".result";
+  private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+  private final Path directory;
+  private long maximumSize = 256 * 1024 * 1024;
+
+  public ToolCache(Path directory) {
+    this.directory = requireNonNull(directory, "directory must not be null");
+  }
+
+  @Override
+  public String toString() {
+    return "ToolCache{" + "directory=" + directory + ", maximumSize=" + maximumSize + '}';
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  /** Set the maximum number of bytes of all stored results. */
+  public ToolCache setMaximumSize(long maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+    return this;
+  }
+
+  /** Return a tool that runs the given tool only if no result is recorded in this cache. */
+  public Tool wrap(Tool tool) {
+    requireNonNull(tool, "tool must not be null");
+    return new Tool() {
+      @Override
+      public String getName() {
+        return tool.getName();
+      }
+
+      @Override
+      public String getProgram() {
+        return tool.getProgram();
+      }
+
+      @Override
+      public String getVersion() {
+        return tool.getVersion();
+      }
+
+      @Override
+      public List<Path> getInputPaths() {
+        return tool.getInputPaths();
+      }
+
+      @Override
+      public Map<String, String> getCacheProperties() {
+        return tool.getCacheProperties();
+      }
+
+      @Override
+      public boolean isCacheable() {
+        return tool.isCacheable();
+      }
+
+      @Override
+      public Result run(Configuration configuration) {
+        return ToolCache.this.run(tool, configuration);
+      }
+    };
+  }
+
+  /** Return the recorded result or run the tool and record its result. */
+  public Result run(Tool tool, Configuration configuration) {
+    if (!tool.isCacheable()) {
+      LOG.log(DEBUG, "Tool {0} is not cacheable", tool.getName());
+      return tool.run(configuration);
+    }
+    var file = directory.resolve(key(tool, configuration) + SUFFIX);
+    var cached = read(file);
+    if (cached.isPresent()) {
+      LOG.log(DEBUG, "Cached result of {0} found: {1}", tool.getName(), file);
+      return cached.get();
+    }
+    var result = tool.run(configuration);
+    if (isRecordable(result) && write(file, result)) {
+      evict();
+    }
+    return result;
+  }
+
+  private static boolean isRecordable(Result result) {
+    return result.getExitCode() == 0 && !result.isTimedOut() && !result.isTerminatedEarly();
+  }
+
+  /** Compute the key of running the tool with the given configuration. */
+  String key(Tool tool, Configuration configuration) {
+    var lines = new ArrayList<String>();
+    lines.add("tool " + tool.getName() + " " + tool.getVersion());
+    lines.add("properties " + new TreeMap<>(tool.getCacheProperties()));
+    lines.add("arguments " + configuration.getArguments());
+    lines.add("environment " + new TreeMap<>(configuration.getEnvironment()));
+    lines.add("directory " + configuration.getWorkingDirectory());
+    var workingDirectory = configuration.getWorkingDirectory();
+    for (var path : configuration.getInputPaths()) {
+      lines.add("input " + path + " " + hash(workingDirectory.resolve(path)));
+    }
+    for (var path : tool.getInputPaths()) {
+      lines.add("tool input " + path + " " + hash(workingDirectory.resolve(path)));
+    }
+    return Sha256.hash(String.join("\n", lines));
+  }
+
+  /** Hash the content of a file or of all files in a directory. */
+  private static String hash(Path path) {
+    var digest = Sha256.digest();
+    try {
+      if (Files.isDirectory(path)) {
+        List<Path> files;
+        try (var stream = Files.walk(path)) {
+          files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (var file : files) {
+          digest.update(path.relativize(file).toString().replace('\\', '/').getBytes(UTF_8));
+          digest.update((byte) 0);
+          Sha256.update(digest, file);
+        }
+      } else if (Files.isRegularFile(path)) {
+        Sha256.update(digest, path);
+      } else {
+        return "missing";
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("hashing input failed: " + path, e);
+    }
+    return Sha256.hex(digest.digest());
+  }
+
+  private Optional<Result> read(Path file) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, UTF_8);
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      LOG.log(DEBUG, "reading cached result failed: " + e);
+      return Optional.empty();
+    }
+    try {
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+    } catch (IOException e) {
+      // evicted in the meantime, the result was read anyway
+    }
+    try {
+      return Optional.of(parse(lines));
+    } catch (RuntimeException e) {
+      LOG.log(DEBUG, "parsing cached result failed: " + e);
+      return Optional.empty();
+    }
+  }
+
+  private static Result parse(List<String> lines) {
+    var result = Result.builder();
+    result.setExitCode(Integer.parseInt(value(lines.get(0), "exitCode")));
+    result.setDuration(Duration.parse(value(lines.get(1), "duration")));
+    var index = 2;
+    while (index < lines.size()) {
+      var header = value(lines.get(index++), "output").split(" ");
+      var count = Integer.parseInt(header[1]);
+      result.setOutput(header[0], List.copyOf(lines.subList(index, index + count)));
+      index += count;
+    }
+    return result.build();
+  }
+
+  private static String value(String line, String name) {
+    if (!line.startsWith(name + " ")) {
+      throw new IllegalStateException("expected " + name + ", but got: " + line);
+    }
+    return line.substring(name.length() + 1);
+  }
+
+  /** Record the result, returns {@code false} if it can't be recorded. */
+  private boolean write(Path file, Result result) {
+    var lines = new ArrayList<String>();
+    lines.add("exitCode " + result.getExitCode());
+    lines.add("duration " + result.getDuration());
+    for (var key : result.getOutputKeys()) {
+      var output = result.getOutputLines(key);
+      if (key.contains(" ") || output.stream().anyMatch(ToolCache::isMultiLine)) {
+        LOG.log(DEBUG, "Result not cached, output can't be stored line by line: {0}", key);
+        return false;
+      }
+      lines.add("output " + key + " " + output.size());
+      lines.addAll(output);
+    }
+    try {
+      Files.createDirectories(directory);
+      var temporary = Files.createTempFile(directory, "bartholdy-", ".tmp");
+      try {
+        Files.write(temporary, lines, UTF_8);
+        Files.move(
+            temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("writing cached result failed: " + file, e);
+    }
+  }
+
+  private static boolean isMultiLine(String line) {
+    return line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0;
+  }
+
+  /** Delete least recently used results until the store doesn't exceed its maximum size. */
+  void evict() {
+    var monitor =
+        MONITORS.computeIfAbsent(directory.toAbsolutePath().normalize(), __ -> new Object());
+    // file locks are held per JVM, overlapping locks within the same JVM throw
+    synchronized (monitor) {
+      var options = new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE};
+      try (var channel = FileChannel.open(directory.resolve("lock"), options)) {
+        channel.lock(); // released by closing the channel
+        var entries = new ArrayList<Entry>();
+        try (var stream = Files.list(directory)) {
+          for (var file : stream.collect(Collectors.toList())) {
+            if (file.getFileName().toString().endsWith(SUFFIX)) {
+              entries.add(new Entry(file));
+            }
+          }
+        }
+        var size = entries.stream().mapToLong(entry -> entry.size).sum();
+        entries.sort(Comparator.comparing(entry -> entry.time));
+        for (var entry : entries) {
+          if (size <= maximumSize) {
+            break;
+          }
+          LOG.log(DEBUG, "Evicting cached result: {0}", entry.file);
+          Files.deleteIfExists(entry.file);
+          size -= entry.size;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("evicting cached results failed: " + directory, e);
+      }
+    }
+  }
+
+  /** Recorded result file with its size and last modified time. */
+  private static final class Entry {
+
+    final Path file;
+    final long size;
+    final FileTime time;
+
+    Entry(Path file) throws IOException {
+      this.file = file;
+      this.size = Files.size(file);
+      this.time = Files.getLastModifiedTime(file);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2018 Christian Stein
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.bartholdy;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.util.Objects.requireNonNull;
+
+import de.sormuras.bartholdy.util.DirectedAcyclicGraph;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Run an action per node of a dependency graph as soon as all dependencies of the node are done.
+ *
+ * <p>An edge from {@code a} to {@code b} means that {@code a} depends on {@code b}: the action for
+ * {@code b} is completed before the action for {@code a} is started. Independent nodes are run in
+ * parallel on a bounded worker pool. When an action fails, i.e. returns a non-zero exit code or
+ * throws, all nodes depending on it directly or indirectly are skipped.
+ */
+public class ToolScheduler {
+
+  private final System.Logger logger = System.getLogger(getClass().getCanonicalName());
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  @Override
+  public String toString() {
+    return "ToolScheduler{" + "parallelism=" + parallelism + '}';
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /** Set the maximum number of concurrent actions, defaults to the number of available cores. */
+  public ToolScheduler setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /** Run the tool for each node with the configuration created for that node. */
+  public Report run(
+      DirectedAcyclicGraph graph, Tool tool, Function<String, Configuration> configurations) {
+    requireNonNull(tool, "tool must not be null");
+    requireNonNull(configurations, "configurations must not be null");
+    return run(graph, node -> tool.run(configurations.apply(node)));
+  }
+
+  /** Run the action for each node respecting the dependencies expressed by the graph's edges. */
+  public Report run(DirectedAcyclicGraph graph, Function<String, Result> action) {
+    requireNonNull(graph, "graph must not be null");
+    requireNonNull(action, "action must not be null");
+    var start = Instant.now();
+    var nodes = graph.getNodes();
+    // count dependencies and map each node to the nodes depending on it
+    var pending = new HashMap<String, Integer>();
+    var dependents = new HashMap<String, List<String>>();
+    for (var node : nodes) {
+      var successors = graph.getSuccessors(node);
+      pending.put(node, successors.size());
+      for (var successor : successors) {
+        dependents.computeIfAbsent(successor, __ -> new ArrayList<>()).add(node);
+      }
+    }
+    var threads = Math.max(1, Math.min(parallelism, nodes.size()));
+    logger.log(DEBUG, "Scheduling {0} node(s) on {1} thread(s)", nodes.size(), threads);
+    var executor =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              var thread = new Thread(runnable, "bartholdy-scheduler-worker");
+              thread.setDaemon(true);
+              return thread;
+            });
+    var service = new ExecutorCompletionService<Task>(executor);
+    var results = new LinkedHashMap<String, Result>();
+    var skipped = new LinkedHashMap<String, Result>();
+    var durations = new LinkedHashMap<String, Duration>();
+    var running = 0;
+    try {
+      for (var node : nodes) {
+        if (pending.get(node) == 0) {
+          service.submit(() -> new Task(node).call(action));
+          running++;
+        }
+      }
+      while (running > 0) {
+        var task = take(service);
+        running--;
+        results.put(task.node, task.result);
+        durations.put(task.node, task.duration);
+        var successful = task.result.getExitCode() == 0;
+        if (!successful) {
+          skip(task.node, dependents, skipped);
+          continue;
+        }
+        for (var dependent : dependents.getOrDefault(task.node, List.of())) {
+          if (pending.merge(dependent, -1, Integer::sum) == 0 && !skipped.containsKey(dependent)) {
+            service.submit(() -> new Task(dependent).call(action));
+            running++;
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    results.putAll(skipped);
+    var duration = Duration.between(start, Instant.now());
+    var criticalPath = criticalPath(graph, durations);
+    return new Report(results, durations, criticalPath, duration);
+  }
+
+  private static Task take(ExecutorCompletionService<Task> service) {
+    try {
+      return service.take().get();
+    } catch (ExecutionException e) {
+      // Task.call() doesn't throw
+      throw new IllegalStateException("task failed unexpectedly", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("run interrupted", e);
+    }
+  }
+
+  /** Mark all nodes depending directly or indirectly on the failed node as skipped. */
+  private static void skip(
+      String failed, Map<String, List<String>> dependents, Map<String, Result> skipped) {
+    var queue = new ArrayDeque<>(dependents.getOrDefault(failed, List.of()));
+    while (!queue.isEmpty()) {
+      var node = queue.remove();
+      if (skipped.containsKey(node)) {
+        continue;
+      }
+      var message = "skipped due to failed dependency: " + failed;
+      skipped.put(node, Result.builder().setOutput("err", message).build());
+      queue.addAll(dependents.getOrDefault(node, List.of()));
+    }
+  }
+
+  /** Compute the chain of dependent nodes with the longest accumulated duration. */
+  private static List<String> criticalPath(
+      DirectedAcyclicGraph graph, Map<String, Duration> durations) {
+    var accumulated = new HashMap<String, Duration>();
+    var previous = new HashMap<String, String>();
+    String last = null;
+    // durations are in completion order: all dependencies of a node completed before it
+    for (var entry : durations.entrySet()) {
+      var node = entry.getKey();
+      var longest = Duration.ZERO;
+      for (var dependency : graph.getSuccessors(node)) {
+        var candidate = accumulated.get(dependency);
+        if (candidate != null && candidate.compareTo(longest) > 0) {
+          longest = candidate;
+          previous.put(node, dependency);
+        }
+      }
+      var total = longest.plus(entry.getValue());
+      accumulated.put(node, total);
+      if (last == null || total.compareTo(accumulated.get(last)) > 0) {
+        last = node;
+      }
+    }
+    var path = new ArrayList<String>();
+    for (var node = last; node != null; node = previous.get(node)) {
+      path.add(node);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  private static class Task {
+
+    final String node;
+    Result result;
+    Duration duration;
+
+    Task(String node) {
+      this.node = node;
+    }
+
+    Task call(Function<String, Result> action) {
+      var start = Instant.now();
+      try {
+        result = requireNonNull(action.apply(node), "action returned null result for " + node);
+      } catch (Exception e) {
+        result = ToolBatch.failed(e);
+      }
+      duration = Duration.between(start, Instant.now());
+      return this;
+    }
+  }
+
+  /** Results, per-node durations and critical path of a scheduled run. */
+  public static class Report {
+
+    private final Map<String, Result> results;
+    private final Map<String, Duration> durations;
+    private final List<String> criticalPath;
+    private final Duration duration;
+
+    Report(
+        Map<String, Result> results,
+        Map<String, Duration> durations,
+        List<String> criticalPath,
+        Duration duration) {
+      this.results = Collections.unmodifiableMap(results);
+      this.durations = Collections.unmodifiableMap(durations);
+      this.criticalPath = List.copyOf(criticalPath);
+      this.duration = duration;
+    }
+
+    @Override
+    public String toString() {
+      return "Report{"
+          + "results="
+          + results.size()
+          + ", failures="
+          + getFailures()
+          + ", duration="
+          + duration
+          + ", criticalPath="
+          + criticalPath
+          + ", criticalPathDuration="
+          + getCriticalPathDuration()
+          + '}';
+    }
+
+    /** Results keyed by node, in completion order; skipped nodes are listed last. */
+    public Map<String, Result> getResults() {
+      return results;
+    }
+
+    /** Durations of all nodes that were run, in completion order. */
+    public Map<String, Duration> getDurations() {
+      return durations;
+    }
+
+    /** Nodes of failed and skipped runs, sorted by their natural order. */
+    public List<String> getFailures() {
+      var failures = new TreeSet<String>();
+      for (var entry : results.entrySet()) {
+        if (entry.getValue().getExitCode() != 0) {
+          failures.add(entry.getKey());
+        }
+      }
+      return List.copyOf(failures);
+    }
+
+    /** Chain of nodes from the first dependency to the last dependent with the longest time. */
+    public List<String> getCriticalPath() {
+      return criticalPath;
+    }
+
+    /** Sum of all durations on the critical path, the lower bound for any parallel schedule. */
+    public Duration getCriticalPathDuration() {
+      return criticalPath.stream().map(durations::get).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /** Wall-clock time of the entire run. */
+    public Duration getDuration() {
+      return duration;
+    }
+
+    public boolean isSuccessful() {
+      return getFailures().isEmpty();
+    }
+  }
+}
@@ -5,8 +5,10 @@ import static java.lang.System.Logger.Level.DEBUG;
 import de.sormuras.bartholdy.Configuration;
 import de.sormuras.bartholdy.Result;
 import de.sormuras.bartholdy.Tool;
+import de.sormuras.bartholdy.util.OutputCapture;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.nio.charset.Charset;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.spi.ToolProvider;
@@ -24,6 +26,8 @@ import java.util.spi.ToolProvider;
  *   <li>jmod
  * </ul>
  *
+ * <p>Tool provider instances are resolved once and cached per thread by {@link ToolProviders}.
+ *
  * @see ToolProvider#findFirst(String)
  */
 abstract class AbstractJdkTool implements Tool {
@@ -49,20 +53,41 @@ abstract class AbstractJdkTool implements Tool {
   @Override
   public Result run(Configuration configuration) {
     logger.log(DEBUG, "Running...");
-    var provider = ToolProvider.findFirst(getName()).orElseThrow();
+    var provider = ToolProviders.of(getClass()).get(getName());
     logger.log(DEBUG, "Found %s", provider);
     var start = Instant.now();
-    var out = new StringWriter();
-    var err = new StringWriter();
+    var charset = Charset.defaultCharset();
+    var out = capture(configuration, "out");
+    var err = capture(configuration, "err");
     var args = configuration.getArguments().toArray(new String[0]);
-    var code = provider.run(new PrintWriter(out), new PrintWriter(err), args);
+    int code;
+    // encode directly into the captures, flushing each line for subscribers to see it live
+    try (var outWriter = new PrintWriter(new OutputStreamWriter(out, charset), true);
+        var errWriter = new PrintWriter(new OutputStreamWriter(err, charset), true)) {
+      code = provider.run(outWriter, errWriter, args);
+    }
     var duration = Duration.between(start, Instant.now());
     logger.log(DEBUG, "Took %s", duration);
     return Result.builder()
         .setExitCode(code)
         .setDuration(duration)
-        .setOutput("out", out.toString())
-        .setOutput("err", err.toString())
+        .setOutput("out", out.getLines())
+        .setOutput("err", err.getLines())
         .build();
   }
+
+  private static OutputCapture capture(Configuration configuration, String key) {
+    var capture =
+        new OutputCapture(
+            configuration.getOutputLimit(),
+            Charset.defaultCharset(),
+            configuration.getOutputSpillThreshold(),
+            configuration.getOutputSpillLimit(),
+            configuration.getTemporaryDirectory());
+    var subscriber = configuration.getOutputSubscribers().get(key);
+    if (subscriber != null) {
+      capture.setSubscriber(subscriber).setRetained(configuration.isOutputRetained());
+    }
+    return capture;
+  }
 }
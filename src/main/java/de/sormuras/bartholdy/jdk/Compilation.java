@@ -0,0 +1,80 @@
+package de.sormuras.bartholdy.jdk;
+
+import de.sormuras.bartholdy.Result;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/** Result of an in-memory compilation providing access to the generated class files. */
+public final class Compilation implements Result {
+
+  private final Result result;
+  private final Map<String, byte[]> classes;
+
+  Compilation(Result result, Map<String, byte[]> classes) {
+    this.result = result;
+    this.classes = Collections.unmodifiableMap(classes);
+  }
+
+  @Override
+  public String toString() {
+    return "Compilation{" + "result=" + result + ", classes=" + classes.keySet() + '}';
+  }
+
+  @Override
+  public int getExitCode() {
+    return result.getExitCode();
+  }
+
+  @Override
+  public Duration getDuration() {
+    return result.getDuration();
+  }
+
+  @Override
+  public List<String> getOutputLines(String key) {
+    return result.getOutputLines(key);
+  }
+
+  @Override
+  public Set<String> getOutputKeys() {
+    return result.getOutputKeys();
+  }
+
+  @Override
+  public Stream<CharSequence> getOutputLineStream(String key) {
+    return result.getOutputLineStream(key);
+  }
+
+  @Override
+  public boolean isTimedOut() {
+    return result.isTimedOut();
+  }
+
+  @Override
+  public boolean isTerminatedEarly() {
+    return result.isTerminatedEarly();
+  }
+
+  @Override
+  public void close() {
+    result.close();
+  }
+
+  /** Return the class file bytes for the given binary name, like {@code "a.b.C$D"}. */
+  public Optional<byte[]> getBytecode(String name) {
+    return Optional.ofNullable(classes.get(name)).map(byte[]::clone);
+  }
+
+  /** Return copies of all generated class files keyed by their binary name, sorted by name. */
+  public Map<String, byte[]> getClasses() {
+    var copies = new TreeMap<String, byte[]>();
+    classes.forEach((name, bytes) -> copies.put(name, bytes.clone()));
+    return Collections.unmodifiableMap(copies);
+  }
+}
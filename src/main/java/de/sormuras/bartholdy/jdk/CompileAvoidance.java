@@ -0,0 +1,262 @@
+package de.sormuras.bartholdy.jdk;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+import de.sormuras.bartholdy.Bartholdy;
+import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.Result;
+import de.sormuras.bartholdy.util.ClassFile;
+import de.sormuras.bartholdy.util.Sha256;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * Compile avoidance for {@code javac} runs based on ABI fingerprints.
+ *
+ * <p>The ABI (application binary interface) fingerprint of a set of class files covers only what
+ * other compilation units can see: all non-private types and members, including package-private
+ * ones, their signatures and constant values. Changing the body of a method doesn't change the
+ * fingerprint.
+ *
+ * <p>A compilation is skipped when its options, the content of its source files and the ABI
+ * fingerprints of all of its dependencies are the same as in the previous run for the same
+ * destination directory. The outputs of the previous run are recorded in a local store directory
+ * and restored from there, if the destination directory was deleted or modified in the meantime.
+ * The ABI fingerprint of each output is recorded as well and reused for dependents, as long as the
+ * output directory is unchanged.
+ */
+public class CompileAvoidance {
+
+  private final System.Logger logger = System.getLogger(getClass().getCanonicalName());
+  private final Path store;
+  private final Javac javac;
+
+  public CompileAvoidance(Path store) {
+    this(store, new Javac());
+  }
+
+  public CompileAvoidance(Path store, Javac javac) {
+    this.store = store;
+    this.javac = javac;
+  }
+
+  @Override
+  public String toString() {
+    return "CompileAvoidance{" + "store=" + store + '}';
+  }
+
+  public Path getStore() {
+    return store;
+  }
+
+  /**
+   * Compile sources into the destination directory, unless nothing relevant changed.
+   *
+   * @param configuration arguments are passed as additional {@code javac} options
+   * @param destination directory to write class files to
+   * @param sources source files to compile
+   * @param dependencies class path entries: directories or jar files
+   * @return the {@code javac} result or a result with exit code {@code 0} and the {@code "avoided"}
+   *     output set, when the compilation was avoided
+   */
+  public Result compile(
+      Configuration configuration, Path destination, List<Path> sources, List<Path> dependencies) {
+    var start = Instant.now();
+    var record = record(destination);
+    var recordedKey = record.resolve("key.txt");
+    var recordedClasses = record.resolve("classes");
+    var recordedStamp = record.resolve("stamp.txt");
+    try {
+      var key = key(configuration, sources, dependencies);
+      if (Files.exists(recordedKey) && Files.readString(recordedKey).equals(key)) {
+        logger.log(DEBUG, "Compilation avoided for {0}", destination);
+        if (!isUnchanged(destination, recordedStamp)) {
+          logger.log(DEBUG, "Restoring modified or deleted {0}", destination);
+          delete(destination);
+          Bartholdy.treeCopy(recordedClasses, destination);
+          Files.writeString(recordedStamp, stamp(destination));
+        }
+        return Result.builder()
+            .setExitCode(0)
+            .setDuration(Duration.between(start, Instant.now()))
+            .setOutput("avoided", "ABI of dependencies and sources unchanged: " + key)
+            .build();
+      }
+      delete(destination);
+      var arguments = Configuration.builder();
+      arguments.setArguments(new ArrayList<>(configuration.getArguments()));
+      arguments.addArgument("-d").addArgument(destination);
+      if (!dependencies.isEmpty()) {
+        arguments.addArgument("--class-path");
+        arguments.addArgument(join(dependencies));
+      }
+      sources.forEach(arguments::addArgument);
+      var result = javac.run(arguments.setTimeout(configuration.getTimeout()).build());
+      delete(record);
+      if (result.getExitCode() != 0) {
+        return result;
+      }
+      // record outputs and key of this compilation
+      Files.createDirectories(record);
+      Bartholdy.treeCopy(destination, recordedClasses);
+      Files.writeString(record.resolve("abi.txt"), fingerprint(destination));
+      Files.writeString(recordedStamp, stamp(destination));
+      Files.writeString(recordedKey, key);
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException("compile avoidance failed for " + destination, e);
+    }
+  }
+
+  private Path record(Path destination) {
+    return store.resolve(Sha256.hash(destination.toAbsolutePath().normalize().toString()));
+  }
+
+  /** Return the recorded ABI fingerprint of a dependency, if it is unchanged, or compute it. */
+  private String abi(Path dependency) throws IOException {
+    if (Files.isDirectory(dependency)) {
+      var record = record(dependency);
+      var abi = record.resolve("abi.txt");
+      if (Files.exists(abi) && isUnchanged(dependency, record.resolve("stamp.txt"))) {
+        return Files.readString(abi);
+      }
+    }
+    return fingerprint(dependency);
+  }
+
+  /** Return {@code true} if the directory matches the recorded stamp. */
+  private static boolean isUnchanged(Path directory, Path recordedStamp) throws IOException {
+    if (!Files.isDirectory(directory) || !Files.exists(recordedStamp)) {
+      return false;
+    }
+    return Files.readString(recordedStamp).equals(stamp(directory));
+  }
+
+  /** Hash names, sizes and modification times of all files in the directory. */
+  private static String stamp(Path directory) throws IOException {
+    var lines = new TreeSet<String>();
+    try (var stream = Files.walk(directory)) {
+      for (var file : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        var name = directory.relativize(file).toString().replace('\\', '/');
+        var time = Files.getLastModifiedTime(file).toMillis();
+        lines.add(name + " " + Files.size(file) + " " + time);
+      }
+    }
+    return Sha256.hash(String.join("\n", lines));
+  }
+
+  private static void delete(Path path) {
+    if (Files.exists(path)) {
+      Bartholdy.treeDelete(path);
+    }
+  }
+
+  private String key(Configuration configuration, List<Path> sources, List<Path> dependencies)
+      throws IOException {
+    var lines = new ArrayList<String>();
+    lines.add("javac " + javac.getVersion());
+    lines.add("options " + configuration.getArguments());
+    for (var source : sources) {
+      lines.add("source " + source + " " + Sha256.hash(source));
+    }
+    for (var dependency : dependencies) {
+      lines.add("dependency " + dependency + " " + abi(dependency));
+    }
+    return Sha256.hash(String.join("\n", lines));
+  }
+
+  /** Compute the ABI fingerprint of the class files in a directory or jar file. */
+  public static String fingerprint(Path classes) {
+    var lines = new TreeSet<String>();
+    try {
+      if (Files.isDirectory(classes)) {
+        try (var stream = Files.walk(classes)) {
+          var files = stream.filter(path -> path.toString().endsWith(".class"));
+          for (var file : files.collect(Collectors.toList())) {
+            try (var in = Files.newInputStream(file)) {
+              abi(lines, in);
+            }
+          }
+        }
+      } else if (Files.isRegularFile(classes)) {
+        try (var jar = new JarFile(classes.toFile())) {
+          for (var entry : jar.stream().collect(Collectors.toList())) {
+            if (entry.getName().endsWith(".class")) {
+              try (var in = jar.getInputStream(entry)) {
+                abi(lines, in);
+              }
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("computing ABI fingerprint failed: " + classes, e);
+    }
+    return Sha256.hash(String.join("\n", lines));
+  }
+
+  private static void abi(TreeSet<String> lines, InputStream in) throws IOException {
+    var bytes = in.readAllBytes();
+    var file = ClassFile.read(bytes);
+    var type = file.getName();
+    if (type.endsWith("module-info")) {
+      lines.add(type + " " + Sha256.hash(bytes));
+      return;
+    }
+    if (!isVisible(file.getAccessFlags())) {
+      return;
+    }
+    lines.add(
+        String.join(
+            " ",
+            "type",
+            type,
+            Integer.toHexString(file.getAccessFlags()),
+            file.getSuperName().orElse("-"),
+            String.valueOf(file.getInterfaces()),
+            file.getSignature().orElse("-")));
+    for (var field : file.getFields()) {
+      abi(lines, type, "field", field);
+    }
+    for (var method : file.getMethods()) {
+      abi(lines, type, "method", method);
+    }
+  }
+
+  private static void abi(TreeSet<String> lines, String type, String kind, ClassFile.Member m) {
+    if (!isVisible(m.getAccessFlags()) || (m.getAccessFlags() & ClassFile.ACC_SYNTHETIC) != 0) {
+      return;
+    }
+    lines.add(
+        String.join(
+            " ",
+            kind,
+            type,
+            Integer.toHexString(m.getAccessFlags()),
+            m.getName(),
+            m.getDescriptor(),
+            m.getSignature().orElse("-"),
+            String.valueOf(m.getExceptions()),
+            m.getConstantValue().orElse("-")));
+  }
+
+  /** Package-private members are visible to dependents in the same package, e.g. tests. */
+  private static boolean isVisible(int accessFlags) {
+    return (accessFlags & ClassFile.ACC_PRIVATE) == 0;
+  }
+
+  private static String join(List<Path> paths) {
+    return paths.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+  }
+}
@@ -0,0 +1,313 @@
+package de.sormuras.bartholdy.jdk;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+import de.sormuras.bartholdy.Configuration;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Long-lived in-memory compiler keeping file managers and their caches warm across compilations.
+ *
+ * <p>Opening the platform's symbol files and the archives on the class path and the module path is
+ * done once and shared by all subsequent compilations. Paths are set via {@link
+ * #setClassPath(List)} and {@link #setModulePath(List)}. The caches are dropped when the paths are
+ * set to different values, when an archive on a path was modified since the last compilation, or
+ * when {@link #invalidate()} is called explicitly. Class directories are read by each compilation
+ * anew and are not checked.
+ *
+ * <p>Options configuring the file manager, like {@code -encoding}, {@code --source-path} or a path
+ * option overriding the paths set here, are applied to the file manager instead of being passed to
+ * the compiler. A file manager is kept warm for each distinct set of such options and their values,
+ * as well as for each {@code --release} value, up to a small number of file managers.
+ *
+ * <p>Compilations are serialized: the shared file managers are not thread-safe.
+ */
+public class CompilerService implements AutoCloseable {
+
+  private static final Set<String> PATH_OPTIONS =
+      Set.of("-cp", "-classpath", "--class-path", "-p", "--module-path");
+
+  /** Maximum number of warm file managers, the least recently used one is closed first. */
+  private static final int MANAGERS = 4;
+
+  private final System.Logger logger = System.getLogger(getClass().getCanonicalName());
+  private final JavaCompiler compiler;
+  private final Map<List<String>, Warm> managers = new LinkedHashMap<>(8, 0.75f, true);
+  private List<Path> classPath = List.of();
+  private List<Path> modulePath = List.of();
+  private StandardJavaFileManager probe;
+  private int invalidations;
+
+  public CompilerService() {
+    this.compiler = ToolProvider.getSystemJavaCompiler();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "CompilerService{"
+        + "classPath="
+        + classPath
+        + ", modulePath="
+        + modulePath
+        + ", invalidations="
+        + invalidations
+        + '}';
+  }
+
+  public synchronized List<Path> getClassPath() {
+    return classPath;
+  }
+
+  public synchronized CompilerService setClassPath(List<Path> classPath) {
+    var paths = List.copyOf(classPath);
+    if (!paths.equals(this.classPath)) {
+      this.classPath = paths;
+      invalidate();
+    }
+    return this;
+  }
+
+  public synchronized List<Path> getModulePath() {
+    return modulePath;
+  }
+
+  public synchronized CompilerService setModulePath(List<Path> modulePath) {
+    var paths = List.copyOf(modulePath);
+    if (!paths.equals(this.modulePath)) {
+      this.modulePath = paths;
+      invalidate();
+    }
+    return this;
+  }
+
+  /** Number of times the warm file manager was discarded. */
+  public synchronized int getInvalidations() {
+    return invalidations;
+  }
+
+  /** Number of warm file managers, one for each distinct set of file manager options. */
+  public synchronized int getWarmFileManagers() {
+    return managers.size();
+  }
+
+  /** Discard all file managers and their caches, the next compilation starts cold. */
+  public synchronized void invalidate() {
+    if (managers.isEmpty()) {
+      return;
+    }
+    logger.log(DEBUG, "Invalidating file managers...");
+    invalidations++;
+    closeManagers();
+  }
+
+  /** Compile sources from memory, keyed by their binary type name like {@code "a.b.C"}. */
+  public synchronized Compilation compile(
+      Configuration configuration, Map<String, String> sources) {
+    var units = MemoryFileManager.sources(sources);
+    return compile(configuration, __ -> units);
+  }
+
+  /** Compile source files and keep the generated class files in memory. */
+  public synchronized Compilation compile(Configuration configuration, Collection<Path> sources) {
+    return compile(configuration, manager -> manager.getJavaFileObjectsFromPaths(sources));
+  }
+
+  private Compilation compile(
+      Configuration configuration,
+      Function<StandardJavaFileManager, Iterable<? extends JavaFileObject>> units) {
+    var arguments = configuration.getArguments();
+    var key = new ArrayList<String>();
+    var options = new ArrayList<String>();
+    for (int i = 0; i < arguments.size(); i++) {
+      var option = arguments.get(i);
+      // long options may be joined with their value, like "--source-path=src"
+      var split = option.startsWith("--") ? option.split("=", 2) : new String[] {option};
+      var name = split[0];
+      var joined = split.length == 2;
+      // "--release" is no file manager option, but javac sets the platform path accordingly
+      if (name.equals("--release")) {
+        var end = joined ? i + 1 : Math.min(i + 2, arguments.size());
+        options.addAll(arguments.subList(i, end));
+        key.add(name);
+        key.add(joined ? split[1] : end > i + 1 ? arguments.get(i + 1) : "");
+        i = end - 1;
+        continue;
+      }
+      var count = probe().isSupportedOption(name);
+      if (count < 0 || (joined && count != 1)) {
+        options.add(option);
+        continue;
+      }
+      key.add(name);
+      if (joined) {
+        key.add(split[1]);
+        continue;
+      }
+      var end = Math.min(i + 1 + count, arguments.size());
+      key.addAll(arguments.subList(i + 1, end));
+      i = end - 1;
+    }
+    var manager = manager(key);
+    return MemoryFileManager.compile(compiler, manager, options, units.apply(manager));
+  }
+
+  @Override
+  public synchronized void close() {
+    closeManagers();
+    if (probe != null) {
+      close(probe);
+      probe = null;
+    }
+  }
+
+  /** Return a file manager only used to query the options it supports. */
+  private StandardJavaFileManager probe() {
+    if (probe == null) {
+      probe = compiler.getStandardFileManager(null, null, null);
+    }
+    return probe;
+  }
+
+  /** Return the warm file manager for the given file manager options or open a new one. */
+  private StandardJavaFileManager manager(List<String> key) {
+    var current = snapshot(key);
+    var warm = managers.get(key);
+    if (warm != null && !current.equals(warm.snapshot)) {
+      logger.log(DEBUG, "Archive modification detected");
+      invalidate();
+      warm = null;
+    }
+    if (warm == null) {
+      if (!key.isEmpty()) {
+        logger.log(DEBUG, "Opening file manager for options: {0}", key);
+      }
+      warm = new Warm(open(key));
+      managers.put(key, warm);
+      if (managers.size() > MANAGERS) {
+        var eldest = managers.keySet().iterator().next();
+        close(managers.remove(eldest).manager);
+      }
+    }
+    warm.snapshot = current;
+    return warm.manager;
+  }
+
+  /** Open a file manager using the current paths and the given file manager options. */
+  private StandardJavaFileManager open(List<String> key) {
+    var opened = compiler.getStandardFileManager(null, null, null);
+    try {
+      opened.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+      opened.setLocationFromPaths(StandardLocation.MODULE_PATH, modulePath);
+      var iterator = key.iterator();
+      while (iterator.hasNext()) {
+        var name = iterator.next();
+        if (name.equals("--release")) {
+          // passed to the compiler, part of the key only
+          iterator.next();
+          continue;
+        }
+        if (!opened.handleOption(name, iterator)) {
+          throw new IllegalArgumentException("file manager option not handled: " + name);
+        }
+      }
+      return opened;
+    } catch (IOException | RuntimeException e) {
+      close(opened);
+      if (e instanceof IOException) {
+        throw new UncheckedIOException("setting paths failed", (IOException) e);
+      }
+      throw (RuntimeException) e;
+    }
+  }
+
+  private void closeManagers() {
+    try {
+      managers.values().forEach(warm -> close(warm.manager));
+    } finally {
+      managers.clear();
+    }
+  }
+
+  private static void close(StandardJavaFileManager manager) {
+    try {
+      manager.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("closing file manager failed", e);
+    }
+  }
+
+  /** Capture size and modification time of archives on the paths and modules in directories. */
+  private List<Object> snapshot(List<String> key) {
+    var list = new ArrayList<>();
+    for (var path : classPath) {
+      snapshot(list, path, false);
+    }
+    // module path directories contain modules as archives or exploded directories
+    for (var path : modulePath) {
+      snapshot(list, path, true);
+    }
+    for (int i = 0; i < key.size() - 1; i++) {
+      if (!PATH_OPTIONS.contains(key.get(i))) {
+        continue;
+      }
+      var modules = key.get(i).equals("-p") || key.get(i).equals("--module-path");
+      for (var path : key.get(i + 1).split(File.pathSeparator)) {
+        snapshot(list, Path.of(path), modules);
+      }
+    }
+    return list;
+  }
+
+  private static void snapshot(List<Object> list, Path path, boolean modules) {
+    if (Files.isDirectory(path)) {
+      if (!modules) {
+        // class directories are not cached by the file manager
+        return;
+      }
+      try (var stream = Files.list(path)) {
+        stream.sorted().forEach(entry -> snapshot(list, entry, false));
+      } catch (IOException e) {
+        throw new UncheckedIOException("listing directory failed: " + path, e);
+      }
+      list.add(path);
+      return;
+    }
+    if (!Files.isRegularFile(path)) {
+      return;
+    }
+    try {
+      var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      list.add(List.of(path, attributes.size(), attributes.lastModifiedTime()));
+    } catch (IOException e) {
+      throw new UncheckedIOException("reading attributes failed: " + path, e);
+    }
+  }
+
+  /** A file manager and the snapshot of the files it cached. */
+  private static final class Warm {
+
+    final StandardJavaFileManager manager;
+    List<Object> snapshot = List.of();
+
+    Warm(StandardJavaFileManager manager) {
+      this.manager = manager;
+    }
+  }
+}
@@ -1,9 +1,49 @@
 package de.sormuras.bartholdy.jdk;
 
+import de.sormuras.bartholdy.Configuration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
 /**
  * You use the {@code javac} tool and its options to read Java class and interface definitions and
  * compile them into bytecode and class files.
  *
+ * <p>Besides running {@code javac} like on the command line, this tool offers an in-memory
+ * compilation mode: the {@code compile} methods don't write class files to the file system, but
+ * return them via {@link Compilation#getClasses()}. The configuration's arguments are passed as
+ * compiler options. Use a {@link CompilerService} to compile many times in a row.
+ *
  * @see <a href="https://docs.oracle.com/javase/10/tools/javac.htm">javac</a>
  */
-public class Javac extends AbstractJdkTool {}
+public class Javac extends AbstractJdkTool {
+
+  /** Compile sources from memory, keyed by their binary type name like {@code "a.b.C"}. */
+  public Compilation compile(Configuration configuration, Map<String, String> sources) {
+    var units = MemoryFileManager.sources(sources);
+    return compile(configuration, __ -> units);
+  }
+
+  /** Compile source files and keep the generated class files in memory. */
+  public Compilation compile(Configuration configuration, Collection<Path> sources) {
+    return compile(configuration, manager -> manager.getJavaFileObjectsFromPaths(sources));
+  }
+
+  private Compilation compile(
+      Configuration configuration,
+      Function<StandardJavaFileManager, Iterable<? extends JavaFileObject>> units) {
+    var compiler = ToolProvider.getSystemJavaCompiler();
+    try (var standard = compiler.getStandardFileManager(null, null, null)) {
+      var options = configuration.getArguments();
+      return MemoryFileManager.compile(compiler, standard, options, units.apply(standard));
+    } catch (IOException e) {
+      throw new UncheckedIOException("closing file manager failed", e);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package de.sormuras.bartholdy.jdk;
+
+import de.sormuras.bartholdy.Result;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/** File manager reading sources from memory and writing generated files into memory. */
+class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+  /** Compile the given units and collect generated class files in memory. */
+  static Compilation compile(
+      JavaCompiler compiler,
+      StandardJavaFileManager standard,
+      List<String> options,
+      Iterable<? extends JavaFileObject> units) {
+    var start = Instant.now();
+    var manager = new MemoryFileManager(standard);
+    var err = new StringWriter();
+    int code;
+    try {
+      var task = compiler.getTask(err, manager, null, options, null, units);
+      code = task.call() ? 0 : 1;
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      // invalid options or sources, like "javac" reporting "bad command-line arguments"
+      err.write(e.getMessage());
+      code = 2;
+    }
+    var result =
+        Result.builder()
+            .setExitCode(code)
+            .setDuration(Duration.between(start, Instant.now()))
+            .setOutput("out", List.of())
+            .setOutput("err", err.toString())
+            .build();
+    return new Compilation(result, manager.getClasses());
+  }
+
+  /** Create compilation units for the given binary type names and source code. */
+  static List<JavaFileObject> sources(Map<String, String> sources) {
+    var units = new ArrayList<JavaFileObject>();
+    sources.forEach((name, code) -> units.add(new Source(name, code)));
+    return units;
+  }
+
+  private final Map<String, Output> outputs;
+
+  MemoryFileManager(StandardJavaFileManager standard) {
+    super(standard);
+    this.outputs = new TreeMap<>();
+  }
+
+  /** Return all generated class files keyed by their binary name. */
+  Map<String, byte[]> getClasses() {
+    var classes = new TreeMap<String, byte[]>();
+    for (var output : outputs.values()) {
+      if (output.getKind() == JavaFileObject.Kind.CLASS) {
+        classes.put(output.name, output.bytes.toByteArray());
+      }
+    }
+    return classes;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(
+      Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+    return outputs.computeIfAbsent(kind + ":" + className, __ -> new Output(className, kind));
+  }
+
+  @Override
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof SimpleJavaFileObject || b instanceof SimpleJavaFileObject) {
+      return a.equals(b);
+    }
+    return super.isSameFile(a, b);
+  }
+
+  private static URI uri(String name, JavaFileObject.Kind kind) {
+    return URI.create("memory:///" + name.replace('.', '/') + kind.extension);
+  }
+
+  /** In-memory compilation unit. */
+  private static class Source extends SimpleJavaFileObject {
+
+    private final String code;
+
+    Source(String name, String code) {
+      super(uri(name, Kind.SOURCE), Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+
+  /** In-memory generated file, like a class file or a source file created by a processor. */
+  private static class Output extends SimpleJavaFileObject {
+
+    private final String name;
+    private final ByteArrayOutputStream bytes;
+
+    Output(String name, Kind kind) {
+      super(uri(name, kind), kind);
+      this.name = name;
+      this.bytes = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      bytes.reset();
+      return bytes;
+    }
+
+    @Override
+    public Writer openWriter() {
+      return new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
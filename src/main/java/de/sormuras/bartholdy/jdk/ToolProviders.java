@@ -0,0 +1,73 @@
+package de.sormuras.bartholdy.jdk;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.spi.ToolProvider;
+
+/**
+ * Thread-safe registry of tool providers.
+ *
+ * <p>The service loader scan is performed only once per module layer. Provider instances are not
+ * guaranteed to be reentrant, therefore each thread is handed out its own instance, which is
+ * created on first use and reused by all subsequent runs on that thread.
+ *
+ * @see ToolProvider#findFirst(String)
+ */
+final class ToolProviders {
+
+  private static final Map<ModuleLayer, ToolProviders> LAYERS = new ConcurrentHashMap<>();
+
+  /** Return the registry for the layer the given class is defined in, or the boot layer. */
+  static ToolProviders of(Class<?> type) {
+    var layer = type.getModule().getLayer();
+    return of(layer == null ? ModuleLayer.boot() : layer);
+  }
+
+  static ToolProviders of(ModuleLayer layer) {
+    return LAYERS.computeIfAbsent(layer, ToolProviders::new);
+  }
+
+  private final ModuleLayer layer;
+  private volatile Map<String, ServiceLoader.Provider<ToolProvider>> providers;
+  private final Map<String, ThreadLocal<ToolProvider>> instances;
+
+  private ToolProviders(ModuleLayer layer) {
+    this.layer = layer;
+    this.instances = new ConcurrentHashMap<>();
+  }
+
+  /** Return the tool provider instance for the given name bound to the current thread. */
+  ToolProvider get(String name) {
+    return instances.computeIfAbsent(name, this::createThreadLocal).get();
+  }
+
+  private ThreadLocal<ToolProvider> createThreadLocal(String name) {
+    var provider = providers().get(name);
+    if (provider != null) {
+      return ThreadLocal.withInitial(provider::get);
+    }
+    // not provided by a module of this layer, fall back to class path based lookup
+    if (ToolProvider.findFirst(name).isEmpty()) {
+      throw new NoSuchElementException("tool provider not found: " + name);
+    }
+    return ThreadLocal.withInitial(() -> ToolProvider.findFirst(name).orElseThrow());
+  }
+
+  private Map<String, ServiceLoader.Provider<ToolProvider>> providers() {
+    var providers = this.providers;
+    if (providers != null) {
+      return providers;
+    }
+    synchronized (this) {
+      if (this.providers == null) {
+        var map = new ConcurrentHashMap<String, ServiceLoader.Provider<ToolProvider>>();
+        ServiceLoader.load(layer, ToolProvider.class).stream()
+            .forEach(provider -> map.putIfAbsent(provider.get().name(), provider));
+        this.providers = map;
+      }
+      return this.providers;
+    }
+  }
+}
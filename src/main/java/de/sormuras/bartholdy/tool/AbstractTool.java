@@ -1,80 +1,320 @@
 package de.sormuras.bartholdy.tool;
 
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
 import de.sormuras.bartholdy.Bartholdy;
 import de.sormuras.bartholdy.Configuration;
 import de.sormuras.bartholdy.Result;
 import de.sormuras.bartholdy.Tool;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import de.sormuras.bartholdy.util.OutputCapture;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AbstractTool implements Tool {
 
+  private static final System.Logger LOG = System.getLogger(AbstractTool.class.getName());
+
+  /** Maximum time to wait for output streams to reach their end after the process exited. */
+  private static final long DRAIN_MILLIS = 5000;
+
+  /** Grace period for a destroyed process to terminate normally before it is killed. */
+  private static final long DESTROY_MILLIS = 1234;
+
+  /** Grace period for a killed process to terminate before it is reported as still alive. */
+  private static final long KILL_MILLIS = 12340;
+
+  /** Initial delay between two polls of an idle output stream, doubled up to the maximum. */
+  private static final long POLL_MILLIS = 1;
+
+  /** Maximum delay between two polls of an idle output stream. */
+  private static final long MAX_POLL_MILLIS = 64;
+
+  /** Small shared pool polling the output streams of all running processes without blocking. */
+  private static final ScheduledExecutorService DRAINERS =
+      createScheduler("bartholdy-drainer", Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * Shared pool of daemon threads reading output streams of exited processes to their end.
+   *
+   * <p>These reads return immediately, unless sub-processes inherited and still hold the pipes.
+   */
+  private static final ExecutorService FINISHERS =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            var thread = new Thread(runnable, "bartholdy-finisher");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Shared single-threaded scheduler driving timeout escalation of all running processes. */
+  private static final ScheduledExecutorService SCHEDULER =
+      createScheduler("bartholdy-scheduler", 1);
+
+  private static ScheduledExecutorService createScheduler(String name, int threads) {
+    var scheduler =
+        new ScheduledThreadPoolExecutor(
+            threads,
+            runnable -> {
+              var thread = new Thread(runnable, name);
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
   @Override
   public Result run(Configuration configuration) {
-    var timeout = configuration.getTimeout().toMillis();
-    var command = createCommand(configuration);
-    var builder = new ProcessBuilder(command);
-    var working = configuration.getWorkingDirectory();
-    builder.directory(working.toFile());
-    builder.environment().put("JAVA_HOME", Bartholdy.currentJdkHome().toString());
-    builder.environment().put(getNameOfEnvironmentHomeVariable(), getHome().toString());
-    builder.environment().putAll(configuration.getEnvironment());
+    var future = runAsync(configuration);
     try {
-      var start = Instant.now();
-      var timestamp = start.toString().replace(':', '-');
-      var errfile = working.resolve(".bartholdy-err-" + timestamp + ".txt");
-      var outfile = working.resolve(".bartholdy-out-" + timestamp + ".txt");
-      builder.redirectError(errfile.toFile());
-      builder.redirectOutput(outfile.toFile());
-      var process = builder.start();
-      try {
-        var timedOut = false;
-        if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
-          timedOut = true;
-          process.destroy();
-          // give process a second to terminate normally
-          for (int i = 10; i > 0 && process.isAlive(); i--) {
-            Thread.sleep(123);
+      return future.get();
+    } catch (ExecutionException e) {
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException("run failed", cause);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("run failed", e);
+    }
+  }
+
+  /**
+   * Start the process and return a future that completes when the process exited.
+   *
+   * <p>No thread is blocked while waiting for the process: completion is driven by {@link
+   * Process#onExit()} and the timeout escalation by a shared scheduler. The result is assembled on
+   * the given executor. Cancelling the returned future kills the process.
+   */
+  @Override
+  public CompletableFuture<Result> runAsync(Configuration configuration, Executor executor) {
+    var start = Instant.now();
+    Process process;
+    try {
+      process = createProcessBuilder(configuration).start();
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(new UncheckedIOException("starting process failed", e));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    try {
+      return watch(process, configuration, executor, start);
+    } catch (RuntimeException e) {
+      // don't leave a running process behind that nobody waits for
+      process.destroyForcibly();
+      return CompletableFuture.failedFuture(e);
+    } catch (Error e) {
+      process.destroyForcibly();
+      throw e;
+    }
+  }
+
+  /** Capture the output of the started process and complete the future when it exited. */
+  private static CompletableFuture<Result> watch(
+      Process process, Configuration configuration, Executor executor, Instant start) {
+    var limit = configuration.getOutputLimit();
+    var future = new CompletableFuture<Result>();
+    var terminatedEarly = new AtomicBoolean();
+    Runnable termination =
+        () -> {
+          if (!terminatedEarly.getAndSet(true)) {
+            LOG.log(DEBUG, "output matched termination predicate, terminating {0}", process);
+            terminate(process, future);
+          }
+        };
+    var err = capture(configuration, "err", termination);
+    var out = capture(configuration, "out", termination);
+    var drained =
+        CompletableFuture.allOf(
+            drain(process, process.getErrorStream(), err),
+            drain(process, process.getInputStream(), out));
+    var timedOut = new AtomicBoolean();
+    var timeout =
+        SCHEDULER.schedule(
+            () -> {
+              timedOut.set(true);
+              terminate(process, future);
+            },
+            configuration.getTimeout().toMillis(),
+            TimeUnit.MILLISECONDS);
+    process
+        .onExit()
+        // sub-processes may still hold the pipes open, don't wait for them forever
+        .thenCompose(__ -> drained.completeOnTimeout(null, DRAIN_MILLIS, TimeUnit.MILLISECONDS))
+        .thenApplyAsync(
+            __ -> {
+              if (err.isTruncated() || out.isTruncated()) {
+                LOG.log(WARNING, "output exceeded limit of {0} bytes and was truncated", limit);
+              }
+              return Result.builder()
+                  .setTimedOut(timedOut.get())
+                  .setTerminatedEarly(terminatedEarly.get())
+                  .setExitCode(process.exitValue())
+                  .setDuration(Duration.between(start, Instant.now()))
+                  .setOutput("err", err.getLines())
+                  .setOutput("out", out.getLines())
+                  .build();
+            },
+            executor)
+        .whenComplete(
+            (result, throwable) -> {
+              timeout.cancel(false);
+              if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+              }
+              future.complete(result);
+            });
+    future.whenComplete(
+        (result, throwable) -> {
+          if (future.isCancelled()) {
+            timeout.cancel(false);
+            process.destroyForcibly();
           }
-          // if the process is still alive, kill it
+        });
+    return future;
+  }
+
+  /** Destroy the process, kill it if it doesn't terminate normally within a short grace period. */
+  private static void terminate(Process process, CompletableFuture<Result> future) {
+    process.destroy();
+    Runnable alive =
+        () -> {
+          if (process.isAlive()) {
+            var message = "process is still alive: " + process.info();
+            future.completeExceptionally(new RuntimeException(message));
+          }
+        };
+    Runnable kill =
+        () -> {
           if (process.isAlive()) {
             process.destroyForcibly();
-            for (int i = 10; i > 0 && process.isAlive(); i--) {
-              Thread.sleep(1234);
-            }
+            SCHEDULER.schedule(alive, KILL_MILLIS, TimeUnit.MILLISECONDS);
           }
+        };
+    SCHEDULER.schedule(kill, DESTROY_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  private static OutputCapture capture(
+      Configuration configuration, String key, Runnable termination) {
+    var capture =
+        new OutputCapture(
+            configuration.getOutputLimit(),
+            Charset.defaultCharset(),
+            configuration.getOutputSpillThreshold(),
+            configuration.getOutputSpillLimit(),
+            configuration.getTemporaryDirectory());
+    var subscriber = configuration.getOutputSubscribers().get(key);
+    if (subscriber != null) {
+      capture.setSubscriber(subscriber).setRetained(configuration.isOutputRetained());
+    }
+    var predicate = configuration.getTerminationPredicates().get(key);
+    if (predicate != null) {
+      capture.setTerminator(predicate, termination);
+    }
+    return capture;
+  }
+
+  private static CompletableFuture<Void> drain(
+      Process process, InputStream stream, OutputCapture capture) {
+    var drain = new Drain(process, stream, capture);
+    DRAINERS.execute(drain);
+    return drain.future;
+  }
+
+  /** Polls an output stream while the process is alive, then reads it to its end. */
+  private static final class Drain implements Runnable {
+
+    private final Process process;
+    private final InputStream stream;
+    private final OutputCapture capture;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final byte[] bytes = new byte[8192];
+    private long delay = POLL_MILLIS;
+
+    Drain(Process process, InputStream stream, OutputCapture capture) {
+      this.process = process;
+      this.stream = stream;
+      this.capture = capture;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (capture.drainAvailable(stream, bytes) > 0) {
+          delay = POLL_MILLIS;
+          DRAINERS.execute(this);
+          return;
         }
         if (process.isAlive()) {
-          throw new RuntimeException("process is still alive: " + process.info());
+          DRAINERS.schedule(this, delay, TimeUnit.MILLISECONDS);
+          delay = Math.min(delay * 2, MAX_POLL_MILLIS);
+          return;
         }
-        var duration = Duration.between(start, Instant.now());
-        return Result.builder()
-            .setTimedOut(timedOut)
-            .setExitCode(process.exitValue())
-            .setDuration(duration)
-            .setOutput("err", readAllLines(errfile))
-            .setOutput("out", readAllLines(outfile))
-            .build();
-      } catch (InterruptedException e) {
-        throw new RuntimeException("run failed", e);
-      } finally {
-        Files.deleteIfExists(errfile);
-        Files.deleteIfExists(outfile);
+        FINISHERS.execute(this::finish);
+      } catch (IOException e) {
+        LOG.log(DEBUG, "draining stream failed: " + e);
+        close();
+        future.complete(null);
+      } catch (RuntimeException e) {
+        close();
+        future.completeExceptionally(e);
+      }
+    }
+
+    private void finish() {
+      try (stream) {
+        capture.drain(stream);
+      } catch (IOException e) {
+        LOG.log(DEBUG, "draining stream failed: " + e);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      future.complete(null);
+    }
+
+    private void close() {
+      try {
+        stream.close();
+      } catch (IOException e) {
+        LOG.log(DEBUG, "closing stream failed: " + e);
       }
-    } catch (IOException e) {
-      throw new UncheckedIOException("starting process failed", e);
     }
   }
 
+  private ProcessBuilder createProcessBuilder(Configuration configuration) {
+    var command = createCommand(configuration);
+    var builder = new ProcessBuilder(command);
+    builder.directory(configuration.getWorkingDirectory().toFile());
+    builder.environment().put("JAVA_HOME", Bartholdy.currentJdkHome().toString());
+    builder.environment().put(getNameOfEnvironmentHomeVariable(), getHome().toString());
+    builder.environment().putAll(configuration.getEnvironment());
+    return builder;
+  }
+
   private List<String> createCommand(Configuration configuration) {
     var program = createProgram(createPathToProgram());
     var command = new ArrayList<String>();
@@ -105,6 +345,16 @@ public abstract class AbstractTool implements Tool {
     return Path.of(".");
   }
 
+  /** Return the program and the home variables injected into the environment of the process. */
+  @Override
+  public Map<String, String> getCacheProperties() {
+    var properties = new TreeMap<String, String>();
+    properties.put("program", createProgram(createPathToProgram()));
+    properties.put("JAVA_HOME", Bartholdy.currentJdkHome().toString());
+    properties.put(getNameOfEnvironmentHomeVariable(), getHome().toString());
+    return properties;
+  }
+
   public String getNameOfEnvironmentHomeVariable() {
     return getClass().getSimpleName().toUpperCase() + "_HOME";
   }
@@ -120,21 +370,4 @@ public abstract class AbstractTool implements Tool {
   protected List<String> getToolArguments() {
     return List.of();
   }
-
-  private static List<String> readAllLines(Path path) {
-    try {
-      return Files.readAllLines(path);
-    } catch (IOException e) {
-      // ignore
-    }
-    var lines = new ArrayList<String>();
-    try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
-      for (String line; (line = br.readLine()) != null; ) {
-        lines.add(line);
-      }
-    } catch (IOException e) {
-      throw new UncheckedIOException("reading lines failed: " + path, e);
-    }
-    return lines;
-  }
 }
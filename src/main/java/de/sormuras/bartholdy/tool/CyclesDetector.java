@@ -3,24 +3,35 @@ package de.sormuras.bartholdy.tool;
 import de.sormuras.bartholdy.Configuration;
 import de.sormuras.bartholdy.Result;
 import de.sormuras.bartholdy.Tool;
-import de.sormuras.bartholdy.jdk.Jdeps;
+import de.sormuras.bartholdy.util.ClassFile;
+import de.sormuras.bartholdy.util.ConcurrentGraphBuilder;
 import de.sormuras.bartholdy.util.CycleDetectedException;
 import de.sormuras.bartholdy.util.DirectedAcyclicGraph;
+import de.sormuras.bartholdy.util.DirectedGraph;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
 
 /** Package cycles detector tool. */
 public class CyclesDetector implements Tool {
 
+  private static final BiPredicate<String, String> SAME_PACKAGE = String::equals;
+
   private final Path path;
   private final BiPredicate<String, String> exclude;
 
   public CyclesDetector(Path path) {
-    this(path, String::equals);
+    this(path, SAME_PACKAGE);
   }
 
   public CyclesDetector(Path path, BiPredicate<String, String> exclude) {
@@ -35,7 +46,18 @@ public class CyclesDetector implements Tool {
 
   @Override
   public String getVersion() {
-    return "1.2";
+    return "1.3";
+  }
+
+  @Override
+  public List<Path> getInputPaths() {
+    return List.of(path);
+  }
+
+  /** Results depend on the exclude predicate, which can't be part of a cache key. */
+  @Override
+  public boolean isCacheable() {
+    return exclude == SAME_PACKAGE;
   }
 
   @Override
@@ -54,56 +76,36 @@ public class CyclesDetector implements Tool {
     return result.build();
   }
 
-  private void detectCycles(Result.Builder result, Path path) {
-    // prepare and run "jdeps" for the JAR...
-    var dependenciesConfiguration = Configuration.builder();
-    try (var jar = new JarFile(path.toFile())) {
-      if (jar.isMultiRelease()) {
-        var version = Runtime.version().feature();
-        dependenciesConfiguration.addArgument("--multi-release").addArgument(version);
-      }
-    } catch (Exception e) {
-      throw new RuntimeException("Opening jar failed: " + e);
-    }
-    dependenciesConfiguration.addArgument("-verbose:class");
-    dependenciesConfiguration.addArgument(path);
-    var dependencies = new Jdeps().run(dependenciesConfiguration.build());
-    if (dependencies.getExitCode() != 0) {
-      throw new RuntimeException("Running jdeps failed: " + dependencies);
-    }
-
-    // extract lines with class-level references...
-    var lines =
-        dependencies
-            .getOutputLines("out")
-            .stream()
-            .filter(line -> line.startsWith("   "))
-            .filter(line -> line.contains("->"))
-            .map(String::trim)
-            .collect(Collectors.toList());
-
-    if (lines.isEmpty()) {
-      return;
-    }
+  /**
+   * Scan the JAR and return the graph of all package dependencies that are not excluded.
+   *
+   * @see de.sormuras.bartholdy.util.ReachabilityIndex
+   */
+  public DirectedGraph getPackageGraph() {
+    var packages = new ConcurrentGraphBuilder();
+    scan(path, items -> items.forEach(i -> packages.addEdge(i.sourcePackage, i.targetPackage)));
+    return packages.freeze();
+  }
 
-    // parse each line and test against user-defined predicate...
+  /** Scan class files of the JAR, sorted by source and target class name. */
+  private List<Item> items(Path path) {
     var items = new ArrayList<Item>();
-    for (var line : lines) {
-      var item = new Item(line);
-      if (exclude.test(item.sourcePackage, item.targetPackage)) {
-        continue;
-      }
-      items.add(item);
-    }
+    scan(path, stream -> stream.sorted().forEachOrdered(items::add));
+    return items;
+  }
 
+  private void detectCycles(Result.Builder result, Path path) {
+    var items = items(path);
     if (items.isEmpty()) {
       return;
     }
 
     var graph = new DirectedAcyclicGraph();
+    var packages = DirectedGraph.builder();
     var cycles = new ArrayList<String>();
     var edges = new ArrayList<String>();
     for (var item : items) {
+      packages.addEdge(item.sourcePackage, item.targetPackage);
       try {
         if (graph.addEdge(item.sourcePackage, item.targetPackage)) {
           edges.add(item.sourcePackage + " -> " + item.targetPackage);
@@ -115,18 +117,55 @@ public class CyclesDetector implements Tool {
     result.setOutput("items", items.stream().map(Object::toString).collect(Collectors.toList()));
     result.setOutput("edges", edges);
     result.setOutput("cycles", cycles);
+    // all groups of packages tangled up in cycles, found in one pass over all edges
+    var tangles = packages.build().findCycles();
+    result.setOutput(
+        "tangles", tangles.stream().map(Object::toString).collect(Collectors.toList()));
+  }
+
+  /**
+   * Read all class files in parallel and pass a stream of all references crossing package
+   * boundaries, which are not excluded by the user-defined predicate, to the consumer.
+   */
+  private void scan(Path path, Consumer<Stream<Item>> consumer) {
+    try (var jar = new JarFile(path.toFile(), false, ZipFile.OPEN_READ, Runtime.version())) {
+      var entries =
+          jar.versionedStream()
+              .filter(entry -> entry.getName().endsWith(".class"))
+              .filter(entry -> !entry.getName().endsWith("module-info.class"))
+              .collect(Collectors.toList());
+      consumer.accept(
+          entries
+              .parallelStream()
+              .flatMap(entry -> items(read(jar, entry)))
+              .filter(item -> !exclude.test(item.sourcePackage, item.targetPackage)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Opening jar failed: " + path, e);
+    }
+  }
+
+  private static ClassFile read(JarFile jar, JarEntry entry) {
+    try (var stream = jar.getInputStream(entry)) {
+      return ClassFile.read(stream.readAllBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Reading " + entry.getRealName() + " failed", e);
+    }
   }
 
-  private static String classNameOf(String raw) {
-    raw = raw.trim();
-    // strip `"` from names
-    raw = raw.replaceAll("\"", "");
-    // remove leading artifacts, like "9/" from a multi-release jar
-    var indexOfSlash = raw.indexOf('/');
-    if (indexOfSlash >= 0) {
-      raw = raw.substring(indexOfSlash + 1);
+  private static Stream<Item> items(ClassFile classFile) {
+    var sourceClass = classFile.getName().replace('/', '.');
+    var sourcePackage = packageNameOf(sourceClass);
+    var items = new ArrayList<Item>();
+    for (var type : classFile.getReferencedTypes()) {
+      var targetClass = type.replace('/', '.');
+      var targetPackage = packageNameOf(targetClass);
+      // same as "jdeps -filter:package", dependencies within the same package are ignored
+      if (sourcePackage.equals(targetPackage)) {
+        continue;
+      }
+      items.add(new Item(sourceClass, targetClass, sourcePackage, targetPackage));
     }
-    return raw;
+    return items.stream();
   }
 
   private static String packageNameOf(String className) {
@@ -137,19 +176,23 @@ public class CyclesDetector implements Tool {
     return className.substring(0, indexOfLastDot);
   }
 
-  private static class Item {
+  private static class Item implements Comparable<Item> {
     private final String sourceClass;
     private final String targetClass;
     private final String sourcePackage;
     private final String targetPackage;
 
-    Item(String line) {
-      var split = line.split("->");
-      var target = split[1].trim();
-      this.sourceClass = classNameOf(split[0].trim());
-      this.targetClass = classNameOf(target.substring(0, target.indexOf(' ')));
-      this.sourcePackage = packageNameOf(sourceClass);
-      this.targetPackage = packageNameOf(targetClass);
+    Item(String sourceClass, String targetClass, String sourcePackage, String targetPackage) {
+      this.sourceClass = sourceClass;
+      this.targetClass = targetClass;
+      this.sourcePackage = sourcePackage;
+      this.targetPackage = targetPackage;
+    }
+
+    @Override
+    public int compareTo(Item other) {
+      var result = sourceClass.compareTo(other.sourceClass);
+      return result != 0 ? result : targetClass.compareTo(other.targetClass);
     }
 
     @Override
@@ -0,0 +1,430 @@
+package de.sormuras.bartholdy.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/** Minimal class file reader exposing the type's name, hierarchy, members and references. */
+public final class ClassFile {
+
+  public static final int ACC_PUBLIC = 0x0001;
+  public static final int ACC_PRIVATE = 0x0002;
+  public static final int ACC_PROTECTED = 0x0004;
+  public static final int ACC_SYNTHETIC = 0x1000;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELD_REF = 9;
+  private static final int CONSTANT_METHOD_REF = 10;
+  private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  /** Parse the class file bytes. */
+  public static ClassFile read(byte[] bytes) {
+    return read(new ByteArrayInputStream(bytes));
+  }
+
+  /** Parse the class file from the stream, the stream is not closed. */
+  public static ClassFile read(InputStream stream) {
+    try {
+      return new ClassFile(new DataInputStream(stream));
+    } catch (IOException e) {
+      throw new UncheckedIOException("reading class file failed", e);
+    }
+  }
+
+  private final int[] tags;
+  private final Object[] constants;
+  private final int accessFlags;
+  private final String name;
+  private final String superName;
+  private final List<String> interfaces;
+  private final List<Member> fields;
+  private final List<Member> methods;
+  private final String signature;
+  private final List<String> descriptors;
+
+  private ClassFile(DataInputStream in) throws IOException {
+    if (in.readInt() != 0xCAFEBABE) {
+      throw new IllegalArgumentException("not a class file");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+    var count = in.readUnsignedShort();
+    this.tags = new int[count];
+    this.constants = new Object[count];
+    this.descriptors = new ArrayList<>();
+    for (int index = 1; index < count; index++) {
+      var tag = in.readUnsignedByte();
+      tags[index] = tag;
+      switch (tag) {
+        case CONSTANT_UTF8:
+          constants[index] = in.readUTF();
+          break;
+        case CONSTANT_INTEGER:
+          constants[index] = in.readInt();
+          break;
+        case CONSTANT_FLOAT:
+          constants[index] = in.readFloat();
+          break;
+        case CONSTANT_LONG:
+          constants[index] = in.readLong();
+          index++; // takes two slots
+          break;
+        case CONSTANT_DOUBLE:
+          constants[index] = in.readDouble();
+          index++; // takes two slots
+          break;
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          constants[index] = in.readUnsignedShort();
+          break;
+        case CONSTANT_FIELD_REF:
+        case CONSTANT_METHOD_REF:
+        case CONSTANT_INTERFACE_METHOD_REF:
+        case CONSTANT_NAME_AND_TYPE:
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          constants[index] = new int[] {in.readUnsignedShort(), in.readUnsignedShort()};
+          break;
+        case CONSTANT_METHOD_HANDLE:
+          constants[index] = new int[] {in.readUnsignedByte(), in.readUnsignedShort()};
+          break;
+        default:
+          throw new IllegalArgumentException("unknown constant pool tag " + tag + " at " + index);
+      }
+    }
+    this.accessFlags = in.readUnsignedShort();
+    this.name = className(in.readUnsignedShort());
+    var superIndex = in.readUnsignedShort();
+    this.superName = superIndex == 0 ? null : className(superIndex);
+    var interfaces = new ArrayList<String>();
+    for (int i = in.readUnsignedShort(); i > 0; i--) {
+      interfaces.add(className(in.readUnsignedShort()));
+    }
+    this.interfaces = List.copyOf(interfaces);
+    this.fields = readMembers(in);
+    this.methods = readMembers(in);
+    this.signature = readAttributes(in).signature;
+  }
+
+  private List<Member> readMembers(DataInputStream in) throws IOException {
+    var members = new ArrayList<Member>();
+    for (int i = in.readUnsignedShort(); i > 0; i--) {
+      var access = in.readUnsignedShort();
+      var memberName = utf8(in.readUnsignedShort());
+      var descriptor = utf8(in.readUnsignedShort());
+      descriptors.add(descriptor);
+      members.add(new Member(access, memberName, descriptor, readAttributes(in)));
+    }
+    return List.copyOf(members);
+  }
+
+  private Attributes readAttributes(DataInputStream in) throws IOException {
+    var attributes = new Attributes();
+    for (int i = in.readUnsignedShort(); i > 0; i--) {
+      var attributeName = utf8(in.readUnsignedShort());
+      var length = in.readInt();
+      switch (attributeName) {
+        case "Signature":
+          attributes.signature = utf8(in.readUnsignedShort());
+          descriptors.add(attributes.signature);
+          break;
+        case "ConstantValue":
+          attributes.constant = String.valueOf(constant(in.readUnsignedShort()));
+          break;
+        case "Exceptions":
+          var exceptions = new ArrayList<String>();
+          for (int j = in.readUnsignedShort(); j > 0; j--) {
+            exceptions.add(className(in.readUnsignedShort()));
+          }
+          attributes.exceptions = List.copyOf(exceptions);
+          break;
+        case "RuntimeVisibleAnnotations":
+          readAnnotations(in);
+          break;
+        case "RuntimeVisibleParameterAnnotations":
+          for (int j = in.readUnsignedByte(); j > 0; j--) {
+            readAnnotations(in);
+          }
+          break;
+        default:
+          skip(in, length);
+      }
+    }
+    return attributes;
+  }
+
+  private void readAnnotations(DataInputStream in) throws IOException {
+    for (int i = in.readUnsignedShort(); i > 0; i--) {
+      readAnnotation(in, true);
+    }
+  }
+
+  private void readAnnotation(DataInputStream in, boolean visible) throws IOException {
+    var type = utf8(in.readUnsignedShort());
+    if (visible) {
+      descriptors.add(type);
+    }
+    for (int i = in.readUnsignedShort(); i > 0; i--) {
+      in.readUnsignedShort(); // element name
+      skipElementValue(in);
+    }
+  }
+
+  private void skipElementValue(DataInputStream in) throws IOException {
+    var tag = in.readUnsignedByte();
+    switch (tag) {
+      case 'e':
+        in.readInt(); // type name and constant name
+        break;
+      case '@':
+        readAnnotation(in, false);
+        break;
+      case '[':
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+          skipElementValue(in);
+        }
+        break;
+      default:
+        in.readUnsignedShort(); // constant or class index
+    }
+  }
+
+  private static void skip(DataInputStream in, int length) throws IOException {
+    while (length > 0) {
+      var skipped = in.skipBytes(length);
+      if (skipped <= 0) {
+        throw new IOException("unexpected end of class file");
+      }
+      length -= skipped;
+    }
+  }
+
+  private Object constant(int index) {
+    if (tags[index] == CONSTANT_STRING) {
+      return utf8((Integer) constants[index]);
+    }
+    return constants[index];
+  }
+
+  private String utf8(int index) {
+    return (String) constants[index];
+  }
+
+  private String className(int index) {
+    return utf8((Integer) constants[index]);
+  }
+
+  /** Access flags of this type, like {@link #ACC_PUBLIC}. */
+  public int getAccessFlags() {
+    return accessFlags;
+  }
+
+  /** Internal name of this type, like {@code "java/lang/Object"}. */
+  public String getName() {
+    return name;
+  }
+
+  /** Internal name of the super class, empty for {@code java.lang.Object} and modules. */
+  public Optional<String> getSuperName() {
+    return Optional.ofNullable(superName);
+  }
+
+  public List<String> getInterfaces() {
+    return interfaces;
+  }
+
+  public List<Member> getFields() {
+    return fields;
+  }
+
+  public List<Member> getMethods() {
+    return methods;
+  }
+
+  /** Generic signature of this type. */
+  public Optional<String> getSignature() {
+    return Optional.ofNullable(signature);
+  }
+
+  /**
+   * Internal names of all types this class file refers to.
+   *
+   * <p>Types are collected from class, name-and-type and method type entries of the constant pool,
+   * the super types, descriptors and generic signatures of the type and its members, declared
+   * exceptions and the types of runtime-visible annotations. The name of this type itself is
+   * included.
+   */
+  public Set<String> getReferencedTypes() {
+    var types = new TreeSet<String>();
+    for (int index = 1; index < tags.length; index++) {
+      switch (tags[index]) {
+        case CONSTANT_CLASS:
+          var internal = className(index);
+          if (internal.startsWith("[")) {
+            parseSignature(internal, types);
+          } else {
+            types.add(internal);
+          }
+          break;
+        case CONSTANT_NAME_AND_TYPE:
+          parseSignature(utf8(((int[]) constants[index])[1]), types);
+          break;
+        case CONSTANT_METHOD_TYPE:
+          parseSignature(utf8((Integer) constants[index]), types);
+          break;
+        default:
+      }
+    }
+    getSuperName().ifPresent(types::add);
+    types.addAll(interfaces);
+    methods.forEach(method -> types.addAll(method.getExceptions()));
+    descriptors.forEach(descriptor -> parseSignature(descriptor, types));
+    return Collections.unmodifiableSet(types);
+  }
+
+  /** Collect all class types named in a descriptor or generic signature. */
+  static void parseSignature(String signature, Set<String> types) {
+    int index = 0;
+    if (signature.charAt(0) == '<') {
+      index++;
+      while (signature.charAt(index) != '>') {
+        index = signature.indexOf(':', index);
+        while (signature.charAt(index) == ':') {
+          index++;
+          if ("L[T".indexOf(signature.charAt(index)) >= 0) {
+            index = parseType(signature, index, types);
+          }
+        }
+      }
+      index++;
+    }
+    while (index < signature.length()) {
+      var c = signature.charAt(index);
+      if (c == '(' || c == ')' || c == '^') {
+        index++;
+        continue;
+      }
+      index = parseType(signature, index, types);
+    }
+  }
+
+  /** Parse one type signature starting at the given index, return the index after it. */
+  private static int parseType(String signature, int index, Set<String> types) {
+    switch (signature.charAt(index)) {
+      case '[':
+      case '+':
+      case '-':
+        return parseType(signature, index + 1, types);
+      case 'T':
+        return signature.indexOf(';', index) + 1;
+      case 'L':
+        break;
+      default:
+        // primitive, void or unbounded wildcard
+        return index + 1;
+    }
+    var name = new StringBuilder();
+    index++;
+    while (true) {
+      var end = index;
+      while ("<;.".indexOf(signature.charAt(end)) < 0) {
+        end++;
+      }
+      if (name.length() > 0) {
+        name.append('$');
+      }
+      name.append(signature, index, end);
+      types.add(name.toString());
+      index = end;
+      if (signature.charAt(index) == '<') {
+        index++;
+        while (signature.charAt(index) != '>') {
+          index = parseType(signature, index, types);
+        }
+        index++;
+      }
+      if (signature.charAt(index) == ';') {
+        return index + 1;
+      }
+      index++; // skip '.' of inner class
+    }
+  }
+
+  private static class Attributes {
+    String signature;
+    String constant;
+    List<String> exceptions = List.of();
+  }
+
+  /** Field or method. */
+  public static final class Member {
+
+    private final int accessFlags;
+    private final String name;
+    private final String descriptor;
+    private final Attributes attributes;
+
+    private Member(int accessFlags, String name, String descriptor, Attributes attributes) {
+      this.accessFlags = accessFlags;
+      this.name = name;
+      this.descriptor = descriptor;
+      this.attributes = attributes;
+    }
+
+    @Override
+    public String toString() {
+      return name + descriptor;
+    }
+
+    public int getAccessFlags() {
+      return accessFlags;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getDescriptor() {
+      return descriptor;
+    }
+
+    /** Generic signature of this member. */
+    public Optional<String> getSignature() {
+      return Optional.ofNullable(attributes.signature);
+    }
+
+    /** String representation of a field's constant value, like {@code 42} or {@code text}. */
+    public Optional<String> getConstantValue() {
+      return Optional.ofNullable(attributes.constant);
+    }
+
+    /** Internal names of the checked exceptions a method declares to throw. */
+    public List<String> getExceptions() {
+      return attributes.exceptions;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package de.sormuras.bartholdy.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * Collector of nodes and edges that many threads may add to at the same time.
+ *
+ * <p>Each node owns a concurrent successor set, adding an edge between existing nodes takes no
+ * lock. When all producers are done, {@link #freeze()} turns the collected edges into an immutable
+ * {@link DirectedGraph}, sorting nodes and successors in parallel.
+ */
+public final class ConcurrentGraphBuilder {
+
+  private final ConcurrentMap<String, Set<String>> successors = new ConcurrentHashMap<>();
+
+  @Override
+  public String toString() {
+    return "ConcurrentGraphBuilder{" + "nodes=" + successors.size() + '}';
+  }
+
+  /** Add a node without any edges. */
+  public ConcurrentGraphBuilder addNode(String id) {
+    successorsOf(id);
+    return this;
+  }
+
+  /** Add an edge from source to target, self-loops are allowed and duplicates ignored. */
+  public ConcurrentGraphBuilder addEdge(String sourceId, String targetId) {
+    successorsOf(targetId);
+    successorsOf(sourceId).add(targetId);
+    return this;
+  }
+
+  private Set<String> successorsOf(String id) {
+    var set = successors.get(requireNonNull(id, "id must not be null"));
+    if (set != null) {
+      return set;
+    }
+    return successors.computeIfAbsent(id, __ -> ConcurrentHashMap.newKeySet());
+  }
+
+  /**
+   * Create an immutable graph of all nodes and edges added so far.
+   *
+   * <p>This method must not be called while other threads are still adding edges.
+   */
+  public DirectedGraph freeze() {
+    var names = successors.keySet().toArray(String[]::new);
+    Arrays.parallelSort(names);
+    var lists = new int[names.length][];
+    IntStream.range(0, names.length)
+        .parallel()
+        .forEach(node -> lists[node] = indices(names, successors.get(names[node])));
+    var offsets = new int[names.length + 1];
+    for (int node = 0; node < names.length; node++) {
+      offsets[node + 1] = offsets[node] + lists[node].length;
+    }
+    var targets = new int[offsets[names.length]];
+    IntStream.range(0, names.length)
+        .parallel()
+        .forEach(
+            node -> System.arraycopy(lists[node], 0, targets, offsets[node], lists[node].length));
+    return new DirectedGraph(names, offsets, targets);
+  }
+
+  private static int[] indices(String[] names, Set<String> targets) {
+    var indices = new int[targets.size()];
+    var count = 0;
+    for (var target : targets) {
+      var index = Arrays.binarySearch(names, target);
+      if (index < 0 || count == indices.length) {
+        throw new IllegalStateException("edges were added while freezing the graph");
+      }
+      indices[count++] = index;
+    }
+    Arrays.sort(indices, 0, count);
+    return Arrays.copyOf(indices, count);
+  }
+}
@@ -1,39 +1,91 @@
 package de.sormuras.bartholdy.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+/**
+ * Directed graph rejecting all edges that would introduce a cycle.
+ *
+ * <p>A topological order of all nodes is maintained while edges are added, following the dynamic
+ * algorithm of Pearce and Kelly: inserting an edge that agrees with the current order is free, any
+ * other insertion only visits and reorders nodes positioned between the edge's two nodes.
+ *
+ * <p>Node ids are mapped to consecutive int indices, edges are stored in growable int arrays per
+ * node: successors sorted for binary search, predecessors unsorted.
+ */
 public class DirectedAcyclicGraph {
 
-  private static final class Node implements Comparable<Node> {
+  private static final int[] EMPTY = new int[0];
 
-    final String id;
-    final Set<Node> next;
+  private final Map<String, Integer> ids;
+  private String[] names;
+  private int[][] next;
+  private int[] nextSize;
+  private int[][] previous;
+  private int[] previousSize;
+  /** Position of each node in the topological order. */
+  private int[] position;
+  /** Nodes by position in the topological order, offset by {@link #first}. */
+  private int[] order;
 
-    Node(String id) {
-      this.id = id;
-      this.next = new TreeSet<>();
-    }
+  private int first;
+  private final BitSet visited;
 
-    @Override
-    public int compareTo(Node o) {
-      return id.compareTo(o.id);
-    }
+  public DirectedAcyclicGraph() {
+    this.ids = new HashMap<>();
+    this.names = new String[16];
+    this.next = new int[16][];
+    this.nextSize = new int[16];
+    this.previous = new int[16][];
+    this.previousSize = new int[16];
+    this.position = new int[16];
+    this.order = new int[16];
+    this.first = order.length / 2;
+    this.visited = new BitSet();
+  }
 
-    @Override
-    public String toString() {
-      return id;
+  /** Add a node without any edges, returns {@code true} if the node was created. */
+  public boolean addNode(String id) {
+    if (ids.containsKey(id)) {
+      return false;
     }
+    append(id);
+    return true;
   }
 
-  private final Map<String, Node> nodes;
+  /** Return all node ids, sorted by their natural order. */
+  public Set<String> getNodes() {
+    return new TreeSet<>(ids.keySet());
+  }
 
-  public DirectedAcyclicGraph() {
-    this.nodes = new HashMap<>();
+  /** Return ids of all direct successors of the given node, sorted by their natural order. */
+  public Set<String> getSuccessors(String id) {
+    var node = ids.get(id);
+    if (node == null) {
+      throw new IllegalArgumentException("no such node: " + id);
+    }
+    var successors = new TreeSet<String>();
+    for (int i = 0; i < nextSize[node]; i++) {
+      successors.add(names[next[node][i]]);
+    }
+    return successors;
+  }
+
+  /** Return all node ids in topological order: each node is listed before its successors. */
+  public List<String> getTopologicalOrder() {
+    var list = new ArrayList<String>(ids.size());
+    for (int i = first; i < first + ids.size(); i++) {
+      list.add(names[order[i]]);
+    }
+    return list;
   }
 
   public boolean addEdge(String sourceId, String targetId) {
@@ -41,38 +93,236 @@ public class DirectedAcyclicGraph {
     if (sourceId.equals(targetId)) {
       throw new CycleDetectedException("Same node: " + sourceId + " == " + targetId);
     }
-    // create new nodes, if necessary
-    var before = nodes.size();
-    var source = nodes.computeIfAbsent(sourceId, Node::new);
-    var target = nodes.computeIfAbsent(targetId, Node::new);
-
-    // detect potential cycle when no new node was created
-    if (nodes.size() == before) {
+    var sourceIndex = ids.get(sourceId);
+    var targetIndex = ids.get(targetId);
+    int source;
+    int target;
+    if (sourceIndex == null || targetIndex == null) {
+      // create new nodes: without any edges they are placed at either end of the order
+      source = sourceIndex == null ? prepend(sourceId) : sourceIndex;
+      target = targetIndex == null ? append(targetId) : targetIndex;
+    } else {
+      source = sourceIndex;
+      target = targetIndex;
       // edge already here...
-      if (source.next.contains(target)) {
+      if (contains(source, target)) {
         return false;
       }
       // find direct cycle...
-      if (target.next.contains(source)) {
-        throw new CycleDetectedException("Anti-edge: " + source + " <-> " + target);
+      if (contains(target, source)) {
+        throw new CycleDetectedException("Anti-edge: " + sourceId + " <-> " + targetId);
+      }
+      // find cyclic path or move nodes affected by the new edge...
+      if (position[target] < position[source]) {
+        reorder(source, target);
       }
-      // find cyclic path...
-      walk(source, target, List.of());
     }
     // remember node's connections
-    source.next.add(target);
+    var index = -Arrays.binarySearch(next[source], 0, nextSize[source], target) - 1;
+    next[source] = insert(next[source], nextSize[source]++, index, target);
+    previous[target] = insert(previous[target], previousSize[target], previousSize[target], source);
+    previousSize[target]++;
     return true;
   }
 
-  private void walk(Node source, Node root, List<Node> path) {
-    for (var node : root.next) {
+  private boolean contains(int source, int target) {
+    return Arrays.binarySearch(next[source], 0, nextSize[source], target) >= 0;
+  }
+
+  /** Insert the value at the given index, growing the array if it's full. */
+  private static int[] insert(int[] array, int size, int index, int value) {
+    if (size == array.length) {
+      array = Arrays.copyOf(array, size + (size >> 1) + 2);
+    }
+    System.arraycopy(array, index, array, index + 1, size - index);
+    array[index] = value;
+    return array;
+  }
+
+  private int create(String id) {
+    var node = ids.size();
+    if (node == names.length) {
+      var capacity = node * 2;
+      names = Arrays.copyOf(names, capacity);
+      next = Arrays.copyOf(next, capacity);
+      nextSize = Arrays.copyOf(nextSize, capacity);
+      previous = Arrays.copyOf(previous, capacity);
+      previousSize = Arrays.copyOf(previousSize, capacity);
+      position = Arrays.copyOf(position, capacity);
+    }
+    names[node] = id;
+    next[node] = EMPTY;
+    previous[node] = EMPTY;
+    ids.put(id, node);
+    return node;
+  }
+
+  private int prepend(String id) {
+    if (first == 0) {
+      grow();
+    }
+    var node = create(id);
+    position[node] = --first;
+    order[first] = node;
+    return node;
+  }
+
+  private int append(String id) {
+    if (first + ids.size() == order.length) {
+      grow();
+    }
+    var node = create(id);
+    position[node] = first + ids.size() - 1;
+    order[position[node]] = node;
+    return node;
+  }
+
+  /** Double the capacity of the order and center the nodes in the new array. */
+  private void grow() {
+    var size = ids.size();
+    var grown = new int[order.length * 2];
+    var offset = (grown.length - size) / 2;
+    System.arraycopy(order, first, grown, offset, size);
+    for (int i = offset; i < offset + size; i++) {
+      position[grown[i]] = i;
+    }
+    order = grown;
+    first = offset;
+  }
+
+  /** Restore the topological order before adding an edge from source to a preceding target. */
+  private void reorder(int source, int target) {
+    var lower = position[target];
+    var upper = position[source];
+    // positions of nodes reachable from target that are positioned before source
+    var forward = search(target, next, nextSize, upper, true);
+    if (Arrays.binarySearch(forward, upper) >= 0) {
+      // target reaches source: adding the edge closes a cycle, walk it for a detailed message
+      walk(source, target);
+      throw new IllegalStateException("cyclic path not found: " + names[source]);
+    }
+    // positions of nodes reaching source that are positioned after target
+    var backward = search(source, previous, previousSize, lower, false);
+    // move all backward nodes in front of all forward nodes, reusing their positions
+    var affected = new int[backward.length + forward.length];
+    for (int i = 0; i < backward.length; i++) {
+      affected[i] = order[backward[i]];
+    }
+    for (int i = 0; i < forward.length; i++) {
+      affected[backward.length + i] = order[forward[i]];
+    }
+    var positions = Arrays.copyOf(backward, affected.length);
+    System.arraycopy(forward, 0, positions, backward.length, forward.length);
+    Arrays.sort(positions);
+    for (int i = 0; i < affected.length; i++) {
+      position[affected[i]] = positions[i];
+      order[positions[i]] = affected[i];
+    }
+  }
+
+  /**
+   * Iterative depth-first search for all nodes reachable within the given position bound.
+   *
+   * @return sorted positions of all nodes found, including the start node
+   */
+  private int[] search(int start, int[][] edges, int[] sizes, int bound, boolean below) {
+    var found = new int[16];
+    var count = 0;
+    var stack = new int[16];
+    var depth = 0;
+    visited.set(start);
+    stack[depth++] = start;
+    while (depth > 0) {
+      var node = stack[--depth];
+      if (count == found.length) {
+        found = Arrays.copyOf(found, count * 2);
+      }
+      found[count++] = position[node];
+      for (int i = 0; i < sizes[node]; i++) {
+        var other = edges[node][i];
+        var inBounds = below ? position[other] <= bound : position[other] >= bound;
+        if (inBounds && !visited.get(other)) {
+          visited.set(other);
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] = other;
+        }
+      }
+    }
+    // reset visited set for the next search
+    for (int i = 0; i < count; i++) {
+      visited.clear(order[found[i]]);
+    }
+    found = Arrays.copyOf(found, count);
+    Arrays.sort(found);
+    return found;
+  }
+
+  /**
+   * Iterative depth-first search for a path from start back to source, visiting each node only
+   * once.
+   */
+  private void walk(int source, int start) {
+    var seen = new BitSet();
+    // nodes on the current path and their successors left to visit
+    var path = new ArrayList<Integer>();
+    var pending = new ArrayList<Iterator<Integer>>();
+    seen.set(start);
+    path.add(start);
+    pending.add(successors(start));
+    while (!path.isEmpty()) {
+      var successors = pending.get(pending.size() - 1);
+      if (!successors.hasNext()) {
+        path.remove(path.size() - 1);
+        pending.remove(pending.size() - 1);
+        continue;
+      }
+      int node = successors.next();
       if (node == source) {
-        var message = "From " + source + " over " + path + " and " + root + " back to " + source;
+        var last = path.get(path.size() - 1);
+        var over = new ArrayList<String>();
+        for (var element : path.subList(0, path.size() - 1)) {
+          over.add(names[element]);
+        }
+        var message =
+            "From "
+                + names[source]
+                + " over "
+                + over
+                + " and "
+                + names[last]
+                + " back to "
+                + names[source];
         throw new CycleDetectedException(message);
       }
-      var newPath = new ArrayList<>(path);
-      newPath.add(root);
-      walk(source, node, List.copyOf(newPath));
+      if (!seen.get(node)) {
+        seen.set(node);
+        path.add(node);
+        pending.add(successors(node));
+      }
+    }
+  }
+
+  /** Return the successors sorted by their ids to report the lexicographically first path. */
+  private Iterator<Integer> successors(int node) {
+    var successors = new Integer[nextSize[node]];
+    for (int i = 0; i < successors.length; i++) {
+      successors[i] = next[node][i];
+    }
+    Arrays.sort(successors, Comparator.comparing((Integer other) -> names[other]));
+    return Arrays.asList(successors).iterator();
+  }
+
+  /** Copy all nodes and edges into an immutable graph. */
+  public DirectedGraph toDirectedGraph() {
+    var builder = DirectedGraph.builder();
+    for (int node = 0; node < ids.size(); node++) {
+      builder.addNode(names[node]);
+      for (int i = 0; i < nextSize[node]; i++) {
+        builder.addEdge(names[node], names[next[node][i]]);
+      }
     }
+    return builder.build();
   }
 }
@@ -0,0 +1,284 @@
+package de.sormuras.bartholdy.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable directed graph that, unlike {@link DirectedAcyclicGraph}, may contain cycles.
+ *
+ * <p>Nodes are sorted by their natural order and mapped to consecutive int indices, successors are
+ * stored in compressed sparse row arrays. All strongly connected components are computed in a
+ * single pass that is linear in the number of nodes and edges.
+ */
+public final class DirectedGraph {
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Create a graph from the given map of nodes to their direct successors. */
+  public static DirectedGraph of(Map<String, ? extends Iterable<String>> successors) {
+    var builder = builder();
+    successors.forEach(
+        (source, targets) -> {
+          builder.addNode(source);
+          targets.forEach(target -> builder.addEdge(source, target));
+        });
+    return builder.build();
+  }
+
+  private final String[] names;
+  private final int[] offsets;
+  private final int[] targets;
+
+  /**
+   * Create a graph from compressed sparse row arrays.
+   *
+   * @param names sorted node ids
+   * @param offsets start of each node's successors in the target array, one more than nodes
+   * @param targets sorted successor indices per node
+   */
+  DirectedGraph(String[] names, int[] offsets, int[] targets) {
+    this.names = names;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  @Override
+  public String toString() {
+    return "DirectedGraph{" + "nodes=" + names.length + ", edges=" + targets.length + '}';
+  }
+
+  int index(String name) {
+    var index = Arrays.binarySearch(names, name);
+    if (index < 0) {
+      throw new IllegalArgumentException("no such node: " + name);
+    }
+    return index;
+  }
+
+  /** Return all node ids, sorted by their natural order. */
+  public List<String> getNodes() {
+    return List.of(names);
+  }
+
+  /** Return ids of all direct successors of the given node, sorted by their natural order. */
+  public List<String> getSuccessors(String id) {
+    var index = index(id);
+    return new Names(offsets[index], offsets[index + 1]);
+  }
+
+  public int getEdgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * Compute all strongly connected components.
+   *
+   * <p>Each component lists its nodes sorted by their natural order. Components are returned in
+   * reverse topological order: a component is listed before all components depending on it.
+   */
+  public List<List<String>> findStronglyConnectedComponents() {
+    var tarjan = new Tarjan();
+    var components = new ArrayList<List<String>>(tarjan.count);
+    for (int i = 0; i < tarjan.count; i++) {
+      components.add(new ArrayList<>());
+    }
+    // names are sorted, so each component list is sorted as well
+    for (int node = 0; node < names.length; node++) {
+      components.get(tarjan.component[node]).add(names[node]);
+    }
+    components.replaceAll(List::copyOf);
+    return components;
+  }
+
+  /**
+   * Map each node index to the index of its strongly connected component.
+   *
+   * <p>Components are numbered in reverse topological order: all components reachable from a
+   * component have lower numbers.
+   */
+  int[] components() {
+    return new Tarjan().component;
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  String name(int node) {
+    return names[node];
+  }
+
+  int successorCount(int node) {
+    return offsets[node + 1] - offsets[node];
+  }
+
+  int successor(int node, int index) {
+    return targets[offsets[node] + index];
+  }
+
+  /**
+   * Compute all groups of nodes that are tangled up in cycles.
+   *
+   * <p>A tangle is a strongly connected component with more than one node or a single node with an
+   * edge to itself. Each tangle is sorted and the tangles are sorted by their first node.
+   */
+  public List<List<String>> findCycles() {
+    var tangles = new ArrayList<List<String>>();
+    for (var component : findStronglyConnectedComponents()) {
+      if (component.size() > 1 || getSuccessors(component.get(0)).contains(component.get(0))) {
+        tangles.add(component);
+      }
+    }
+    tangles.sort(Comparator.comparing(tangle -> tangle.get(0)));
+    return tangles;
+  }
+
+  /** Iterative variant of Tarjan's algorithm, not limited by the call stack depth. */
+  private class Tarjan {
+
+    /** Discovery index per node, starting at 1, 0 means unvisited. */
+    final int[] index = new int[names.length];
+
+    final int[] lowlink = new int[names.length];
+    final boolean[] onStack = new boolean[names.length];
+    final int[] stack = new int[names.length];
+    final int[] component = new int[names.length];
+    /** Call stack of nodes and the position of the next successor edge to explore. */
+    final int[] nodes = new int[names.length];
+
+    final int[] edges = new int[names.length];
+    int stackSize = 0;
+    int counter = 0;
+    int count = 0;
+
+    Tarjan() {
+      for (int node = 0; node < names.length; node++) {
+        if (index[node] == 0) {
+          visit(node);
+        }
+      }
+    }
+
+    void visit(int root) {
+      var depth = 0;
+      nodes[0] = root;
+      edges[0] = offsets[root];
+      open(root);
+      while (depth >= 0) {
+        var node = nodes[depth];
+        if (edges[depth] < offsets[node + 1]) {
+          var target = targets[edges[depth]++];
+          if (index[target] == 0) {
+            depth++;
+            nodes[depth] = target;
+            edges[depth] = offsets[target];
+            open(target);
+          } else if (onStack[target]) {
+            lowlink[node] = Math.min(lowlink[node], index[target]);
+          }
+          continue;
+        }
+        if (lowlink[node] == index[node]) {
+          close(node);
+        }
+        depth--;
+        if (depth >= 0) {
+          var parent = nodes[depth];
+          lowlink[parent] = Math.min(lowlink[parent], lowlink[node]);
+        }
+      }
+    }
+
+    void open(int node) {
+      index[node] = lowlink[node] = ++counter;
+      stack[stackSize++] = node;
+      onStack[node] = true;
+    }
+
+    void close(int root) {
+      int node;
+      do {
+        node = stack[--stackSize];
+        onStack[node] = false;
+        component[node] = count;
+      } while (node != root);
+      count++;
+    }
+  }
+
+  /** Read-only view on a range of the target array. */
+  private class Names extends AbstractList<String> {
+
+    private final int from;
+    private final int to;
+
+    Names(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("index " + index + " out of bounds: " + size());
+      }
+      return names[targets[from + index]];
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+  /** Mutable collector of nodes and edges. */
+  public static class Builder {
+
+    private final Map<String, Set<String>> successors = new TreeMap<>();
+
+    Builder() {}
+
+    /** Add a node without any edges. */
+    public Builder addNode(String id) {
+      successors.computeIfAbsent(requireNonNull(id, "id must not be null"), __ -> new TreeSet<>());
+      return this;
+    }
+
+    /** Add an edge from source to target, self-loops are allowed and duplicates ignored. */
+    public Builder addEdge(String sourceId, String targetId) {
+      addNode(targetId);
+      addNode(sourceId);
+      successors.get(sourceId).add(targetId);
+      return this;
+    }
+
+    public DirectedGraph build() {
+      var names = successors.keySet().toArray(String[]::new);
+      var offsets = new int[names.length + 1];
+      var node = 0;
+      for (var set : successors.values()) {
+        offsets[node + 1] = offsets[node] + set.size();
+        node++;
+      }
+      var targets = new int[offsets[names.length]];
+      var edge = 0;
+      for (var set : successors.values()) {
+        for (var target : set) {
+          targets[edge++] = Arrays.binarySearch(names, target);
+        }
+      }
+      return new DirectedGraph(names, offsets, targets);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package de.sormuras.bartholdy.util;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Downloads files, fetching large files over HTTP in segments and resuming interrupted downloads.
+ *
+ * <p>Each segment is fetched by an HTTP range request into its own part file next to the target, so
+ * an interrupted download continues where it stopped. Part files are discarded if the length or
+ * validator ({@code ETag} or {@code Last-Modified}) of the remote file changed. Resuming requests
+ * carry the validator in an {@code If-Range} header: if the remote file changed in the meantime,
+ * the download starts over. When all parts are complete, they are joined into a temporary file,
+ * verified and moved to the target atomically: an existing target file is always complete.
+ *
+ * <p>The default client uses HTTP/1.1: segments are fetched over separate connections in parallel,
+ * instead of being multiplexed over a single HTTP/2 connection.
+ */
+public class Downloader {
+
+  private static final System.Logger LOG = System.getLogger(Downloader.class.getName());
+
+  private final HttpClient client;
+  private int segments = 4;
+  private long minimumSegmentSize = 1024 * 1024;
+
+  public Downloader() {
+    this(
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build());
+  }
+
+  /** Create a downloader using the client, which should prefer HTTP/1.1 for parallel segments. */
+  public Downloader(HttpClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public String toString() {
+    return "Downloader{"
+        + "segments="
+        + segments
+        + ", minimumSegmentSize="
+        + minimumSegmentSize
+        + '}';
+  }
+
+  /** Set the maximum number of segments fetched in parallel. */
+  public Downloader setSegments(int segments) {
+    if (segments < 1) {
+      throw new IllegalArgumentException("segments must be greater than zero: " + segments);
+    }
+    this.segments = segments;
+    return this;
+  }
+
+  /** Set the number of bytes a file must have per segment to be split up. */
+  public Downloader setMinimumSegmentSize(long minimumSegmentSize) {
+    if (minimumSegmentSize < 1) {
+      throw new IllegalArgumentException("minimumSegmentSize must be positive");
+    }
+    this.minimumSegmentSize = minimumSegmentSize;
+    return this;
+  }
+
+  /**
+   * Download the file to the target path, replacing an existing file.
+   *
+   * @param uri location of the file
+   * @param target path to move the downloaded file to
+   * @param sha256 expected hex-encoded SHA-256 checksum of the file or {@code null}
+   * @return the target path
+   */
+  public Path download(URI uri, Path target, String sha256) throws IOException {
+    var directory = target.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    var name = target.getFileName().toString();
+    var parts = new ArrayList<Path>();
+    var scheme = uri.getScheme();
+    if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) {
+      try {
+        fetch(uri, directory, name, parts);
+      } catch (ChangedException e) {
+        LOG.log(DEBUG, "Restarting download of changed file: {0}", uri);
+        delete(directory, name, parts);
+        parts.clear();
+        fetch(uri, directory, name, parts);
+      }
+    } else {
+      var part = directory.resolve(name + ".part-0");
+      try (var stream = uri.toURL().openStream()) {
+        Files.copy(stream, part, StandardCopyOption.REPLACE_EXISTING);
+      }
+      parts.add(part);
+    }
+    var temporary = Files.createTempFile(directory, name + "-", ".tmp");
+    try {
+      var digest = Sha256.digest();
+      try (var out = new DigestOutputStream(Files.newOutputStream(temporary), digest)) {
+        for (var part : parts) {
+          Files.copy(part, out);
+        }
+      }
+      var actual = Sha256.hex(digest.digest());
+      if (sha256 != null && !sha256.equalsIgnoreCase(actual)) {
+        delete(directory, name, parts);
+        var message = "checksum mismatch for " + uri + ": expected " + sha256 + ", got " + actual;
+        throw new IOException(message);
+      }
+      Files.move(
+          temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    delete(directory, name, parts);
+    return target;
+  }
+
+  /** Fetch all segments of the remote file into part files. */
+  private void fetch(URI uri, Path directory, String name, List<Path> parts) throws IOException {
+    var remote = head(uri);
+    var length = remote.length;
+    var count = 1;
+    if (remote.ranges && length > 0) {
+      count = (int) Math.max(1, Math.min(segments, length / minimumSegmentSize));
+    }
+    // discard parts of a different remote file or a different segmentation
+    var identity = directory.resolve(name + ".parts");
+    var expected = String.join("\n", "" + uri, "" + length, remote.validator, "" + count);
+    if (!remote.ranges || !Files.exists(identity) || !Files.readString(identity).equals(expected)) {
+      delete(directory, name, List.of());
+      Files.writeString(identity, expected);
+    }
+    var futures = new ArrayList<CompletableFuture<?>>();
+    for (int i = 0; i < count; i++) {
+      var part = directory.resolve(name + ".part-" + i);
+      parts.add(part);
+      if (remote.ranges) {
+        var start = length * i / count;
+        futures.add(fetch(uri, part, start, length * (i + 1) / count, remote.validator));
+      } else {
+        futures.add(fetch(uri, part));
+      }
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("download interrupted: " + uri);
+    } catch (ExecutionException e) {
+      var cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("download failed: " + uri, cause);
+    }
+  }
+
+  /**
+   * Fetch the missing bytes of the segment from start (inclusive) to end (exclusive).
+   *
+   * <p>Bytes are only appended to existing bytes if the remote file still matches the validator, a
+   * weak or missing validator restarts the segment.
+   */
+  private CompletableFuture<?> fetch(URI uri, Path part, long start, long end, String validator)
+      throws IOException {
+    var done = Files.exists(part) ? Files.size(part) : 0;
+    if (done == end - start) {
+      return CompletableFuture.completedFuture(part);
+    }
+    var resumable = !validator.isEmpty() && !validator.startsWith("W/");
+    if (done > end - start || (done > 0 && !resumable)) {
+      Files.delete(part);
+      done = 0;
+    }
+    var range = "bytes=" + (start + done) + "-" + (end - 1);
+    LOG.log(DEBUG, "Fetching {0} of {1}", range, uri);
+    var request = HttpRequest.newBuilder(uri).header("Range", range);
+    var resuming = done > 0;
+    if (resuming) {
+      // a changed remote file is sent in full with status 200
+      request.header("If-Range", validator);
+    }
+    var append = new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.APPEND};
+    return client
+        .sendAsync(request.build(), info -> body(info, 206, part, append))
+        .thenAccept(response -> check(response, 206, part, end - start, resuming));
+  }
+
+  /** Fetch the entire file without range requests. */
+  private CompletableFuture<?> fetch(URI uri, Path part) {
+    var request = HttpRequest.newBuilder(uri).build();
+    var truncate =
+        new StandardOpenOption[] {
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+        };
+    return client
+        .sendAsync(request, info -> body(info, 200, part, truncate))
+        .thenAccept(response -> check(response, 200, part, -1, false));
+  }
+
+  private static HttpResponse.BodySubscriber<?> body(
+      HttpResponse.ResponseInfo info, int status, Path part, StandardOpenOption... options) {
+    if (info.statusCode() == status) {
+      return HttpResponse.BodySubscribers.ofFile(part, options);
+    }
+    return HttpResponse.BodySubscribers.discarding();
+  }
+
+  private static void check(
+      HttpResponse<?> response, int status, Path part, long length, boolean resuming) {
+    try {
+      if (resuming && response.statusCode() == 200) {
+        throw new ChangedException(response.uri());
+      }
+      if (response.statusCode() != status) {
+        throw new IOException("unexpected status " + response.statusCode() + " of " + response);
+      }
+      if (length >= 0 && Files.size(part) != length) {
+        throw new IOException("incomplete part " + part + ": " + Files.size(part) + "/" + length);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Request the length and validator of the remote file and whether ranges are supported. */
+  private Remote head(URI uri) throws IOException {
+    var request =
+        HttpRequest.newBuilder(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+    try {
+      var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() != 200) {
+        return new Remote(-1, false, "");
+      }
+      var headers = response.headers();
+      var length = headers.firstValueAsLong("Content-Length").orElse(-1);
+      var ranges = headers.firstValue("Accept-Ranges").filter("bytes"::equalsIgnoreCase);
+      var validator = headers.firstValue("ETag").or(() -> headers.firstValue("Last-Modified"));
+      return new Remote(length, ranges.isPresent(), validator.orElse(""));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("download interrupted: " + uri);
+    }
+  }
+
+  private static void delete(Path directory, String name, List<Path> parts) throws IOException {
+    for (var part : parts) {
+      Files.deleteIfExists(part);
+    }
+    try (var stream = Files.newDirectoryStream(directory, name + ".part-*")) {
+      for (var part : stream) {
+        Files.deleteIfExists(part);
+      }
+    }
+    Files.deleteIfExists(directory.resolve(name + ".parts"));
+  }
+
+  /** Signals that the remote file doesn't match the validator of the already fetched bytes. */
+  private static final class ChangedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    ChangedException(URI uri) {
+      super("remote file changed: " + uri);
+    }
+  }
+
+  /** Properties of a remote file. */
+  private static final class Remote {
+
+    final long length;
+    final boolean ranges;
+    final String validator;
+
+    Remote(long length, boolean ranges, String validator) {
+      this.length = length;
+      this.ranges = ranges;
+      this.validator = validator;
+    }
+  }
+}
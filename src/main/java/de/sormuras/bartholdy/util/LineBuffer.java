@@ -0,0 +1,194 @@
+package de.sormuras.bartholdy.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Stream of bytes split into lines, stored in a single byte array and an index of line ends.
+ *
+ * <p>Line terminators {@code \n}, {@code \r} and {@code \r\n} are not stored. Lines are decoded
+ * only when they are accessed via the list returned by {@link #getLines()}. Once a line doesn't fit
+ * into the limit, counting each terminator as one byte, it and all following lines are dropped.
+ */
+public class LineBuffer extends OutputStream {
+
+  /** Create a buffer holding all lines of the given text. */
+  public static LineBuffer of(String text, Charset charset) {
+    var buffer = new LineBuffer(Long.MAX_VALUE, charset);
+    var bytes = text.getBytes(charset);
+    buffer.write(bytes, 0, bytes.length);
+    buffer.close();
+    return buffer;
+  }
+
+  /** Create a buffer handing each line to the listener as soon as it's complete. */
+  public static LineBuffer listening(Charset charset, Consumer<? super String> listener) {
+    return new LineBuffer(Long.MAX_VALUE, charset, listener);
+  }
+
+  private final long limit;
+  private final Charset charset;
+  private final Consumer<? super String> listener;
+  private byte[] bytes;
+  private int[] ends;
+  private int count;
+  /** Number of bytes stored, including the pending line. */
+  private int length;
+  /** Start of the pending line. */
+  private int start;
+  /** Number of bytes of all completed lines, each terminator counted as one byte. */
+  private long size;
+
+  private boolean carriageReturn;
+  private boolean truncated;
+
+  public LineBuffer(long limit, Charset charset) {
+    this(limit, charset, null);
+  }
+
+  private LineBuffer(long limit, Charset charset, Consumer<? super String> listener) {
+    this.limit = limit;
+    this.charset = charset;
+    this.listener = listener;
+    this.bytes = new byte[256];
+    this.ends = new int[16];
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    Objects.checkFromIndexSize(off, len, b.length);
+    var from = off;
+    for (int i = off; i < off + len; i++) {
+      var c = b[i];
+      if (c != '\n' && c != '\r') {
+        carriageReturn = false;
+        continue;
+      }
+      append(b, from, i);
+      if (c == '\r' || !carriageReturn) {
+        endLine();
+      }
+      carriageReturn = c == '\r';
+      from = i + 1;
+    }
+    append(b, from, off + len);
+  }
+
+  /** Complete the pending line, if it's not empty. */
+  @Override
+  public void close() {
+    if (length > start) {
+      endLine();
+    }
+  }
+
+  private void append(byte[] b, int from, int to) {
+    if (from == to || truncated) {
+      return;
+    }
+    var n = to - from;
+    if (size + (length - start) + n + 1 > limit) {
+      truncate();
+      return;
+    }
+    if (length + n > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(length + n, bytes.length * 2));
+    }
+    System.arraycopy(b, from, bytes, length, n);
+    length += n;
+  }
+
+  private void endLine() {
+    if (listener != null) {
+      // nothing is retained
+      var line = new String(bytes, 0, length, charset);
+      length = 0;
+      listener.accept(line);
+      return;
+    }
+    if (truncated) {
+      return;
+    }
+    if (size + (length - start) + 1 > limit) {
+      truncate();
+      return;
+    }
+    if (count == ends.length) {
+      ends = Arrays.copyOf(ends, count * 2);
+    }
+    ends[count++] = length;
+    size += length - start + 1;
+    start = length;
+  }
+
+  private void truncate() {
+    truncated = true;
+    length = start;
+  }
+
+  /** Return {@code true} if at least one line was dropped due to the limit being exceeded. */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /** Return an immutable view of all lines completed so far. */
+  public Lines getLines() {
+    // completed lines are never overwritten, growing copies the arrays
+    return new HeapLines(bytes, ends, count, charset);
+  }
+
+  /** Write all completed lines terminated by {@code \n}, followed by the pending line. */
+  public void writeTo(OutputStream stream) throws IOException {
+    var from = 0;
+    for (int i = 0; i < count; i++) {
+      stream.write(bytes, from, ends[i] - from);
+      stream.write('\n');
+      from = ends[i];
+    }
+    stream.write(bytes, from, length - from);
+  }
+
+  private static final class HeapLines extends Lines {
+
+    private final byte[] bytes;
+    private final int[] ends;
+    private final int count;
+    private final Charset charset;
+
+    private HeapLines(byte[] bytes, int[] ends, int count, Charset charset) {
+      this.bytes = bytes;
+      this.ends = ends;
+      this.count = count;
+      this.charset = charset;
+    }
+
+    @Override
+    public String get(int index) {
+      Objects.checkIndex(index, count);
+      var from = index == 0 ? 0 : ends[index - 1];
+      return new String(bytes, from, ends[index] - from, charset);
+    }
+
+    @Override
+    public CharSequence sequence(int index) {
+      Objects.checkIndex(index, count);
+      var from = index == 0 ? 0 : ends[index - 1];
+      return charset.decode(ByteBuffer.wrap(bytes, from, ends[index] - from));
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+  }
+}
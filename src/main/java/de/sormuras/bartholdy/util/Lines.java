@@ -0,0 +1,23 @@
+package de.sormuras.bartholdy.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** Immutable list of text lines that are decoded on access. */
+public abstract class Lines extends AbstractList<String> implements RandomAccess {
+
+  /** Decode the line at the given index. */
+  public abstract CharSequence sequence(int index);
+
+  @Override
+  public String get(int index) {
+    return sequence(index).toString();
+  }
+
+  /** Decode lines one after the other, without creating string instances. */
+  public Stream<CharSequence> sequences() {
+    return IntStream.range(0, size()).mapToObj(this::sequence);
+  }
+}
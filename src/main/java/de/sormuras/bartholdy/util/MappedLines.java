@@ -0,0 +1,166 @@
+package de.sormuras.bartholdy.util;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Lines of a file read through memory-mapped segments, without loading the file onto the heap.
+ *
+ * <p>Only the start of every {@code 1 << SHIFT}th line is indexed, other lines are found by
+ * scanning forward from the nearest indexed line start.
+ *
+ * <p>Lines of a temporary file delete the file when they are closed or no longer referenced. The
+ * file is shared by all snapshots of the same output, closing one of them closes all of them.
+ */
+public final class MappedLines extends Lines implements AutoCloseable {
+
+  /** Binary logarithm of the number of lines per indexed line start. */
+  static final int SHIFT = 6;
+
+  private final Path path;
+  private final long size;
+  private final long[] marks;
+  private final int count;
+  private final Charset charset;
+  private final int segmentShift;
+  private final MappedByteBuffer[] segments;
+  private final Handle handle;
+  private volatile boolean closed;
+
+  MappedLines(Path path, long size, long[] marks, int count, Charset charset) throws IOException {
+    this(path, size, marks, count, charset, 30, null);
+  }
+
+  MappedLines(
+      Path path,
+      long size,
+      long[] marks,
+      int count,
+      Charset charset,
+      int segmentShift,
+      Handle handle)
+      throws IOException {
+    this.handle = handle;
+    this.path = path;
+    this.size = size;
+    this.marks = marks;
+    this.count = count;
+    this.charset = charset;
+    this.segmentShift = segmentShift;
+    var segment = 1L << segmentShift;
+    this.segments = new MappedByteBuffer[(int) ((size + segment - 1) >>> segmentShift)];
+    // mapped buffers stay valid after the channel is closed
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (int i = 0; i < segments.length; i++) {
+        var position = (long) i << segmentShift;
+        var length = Math.min(segment, size - position);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      }
+    }
+  }
+
+  /** Return the path to the file holding the lines. */
+  public Path getPath() {
+    return path;
+  }
+
+  /** Delete the temporary file and release the mapped segments. */
+  @Override
+  public void close() {
+    closed = true;
+    if (handle != null) {
+      handle.close();
+    }
+    Arrays.fill(segments, null);
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public CharSequence sequence(int index) {
+    Objects.checkIndex(index, count);
+    if (closed) {
+      throw new IllegalStateException("lines are closed: " + path);
+    }
+    var start = start(index);
+    var end = start;
+    while (end < size && !isTerminator(at(end))) {
+      end++;
+    }
+    if (start == end) {
+      return "";
+    }
+    var segment = (int) (start >>> segmentShift);
+    if (segment == (int) ((end - 1) >>> segmentShift)) {
+      var offset = (int) (start - ((long) segment << segmentShift));
+      var slice = segments[segment].duplicate();
+      slice.position(offset).limit(offset + (int) (end - start));
+      return charset.decode(slice);
+    }
+    // line spans two or more segments
+    var bytes = new byte[Math.toIntExact(end - start)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = at(start + i);
+    }
+    return charset.decode(ByteBuffer.wrap(bytes));
+  }
+
+  private long start(int index) {
+    var position = marks[index >>> SHIFT];
+    for (int skip = index & ((1 << SHIFT) - 1); skip > 0; skip--) {
+      while (!isTerminator(at(position))) {
+        position++;
+      }
+      if (at(position++) == '\r' && position < size && at(position) == '\n') {
+        position++;
+      }
+    }
+    return position;
+  }
+
+  private byte at(long position) {
+    var segment = segments[(int) (position >>> segmentShift)];
+    return segment.get((int) (position & ((1L << segmentShift) - 1)));
+  }
+
+  private static boolean isTerminator(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  /** Deletes a temporary file when it's closed or no longer referenced. */
+  static final class Handle {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Cleaner.Cleanable cleanable;
+
+    Handle(Path file) {
+      // the cleaning action must not refer to this handle
+      this.cleanable = CLEANER.register(this, () -> delete(file));
+    }
+
+    void close() {
+      cleanable.clean();
+    }
+
+    private static void delete(Path file) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // still deleted on exit
+      }
+    }
+  }
+}
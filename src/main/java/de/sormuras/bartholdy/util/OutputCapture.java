@@ -0,0 +1,341 @@
+package de.sormuras.bartholdy.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Predicate;
+
+/**
+ * Drains a stream of bytes into a bounded list of lines, optionally publishing each line.
+ *
+ * <p>Output exceeding the threshold is spilled to a temporary file and read back via {@link
+ * MappedLines}. The file is deleted when the lines are closed or no longer referenced, at the
+ * latest on exit. Spilled output is limited by its raw size, with {@code \r\n} counted as two
+ * bytes.
+ */
+public class OutputCapture extends OutputStream {
+
+  private final long limit;
+  private final Charset charset;
+  private final long threshold;
+  private final long spillLimit;
+  private final Path directory;
+  private LineBuffer buffer;
+  private Spill spill;
+  private long received;
+  private byte previous;
+  private boolean retained = true;
+  private LineBuffer listener;
+  private SubmissionPublisher<String> publisher;
+  private Predicate<? super String> terminator;
+  private Runnable termination;
+  private boolean terminated;
+
+  public OutputCapture(long limit) {
+    this(limit, Charset.defaultCharset());
+  }
+
+  public OutputCapture(long limit, Charset charset) {
+    this(limit, charset, Long.MAX_VALUE, Path.of(System.getProperty("java.io.tmpdir")));
+  }
+
+  /** Create an output capture spilling to a file, with the limit applying to both storages. */
+  public OutputCapture(long limit, Charset charset, long threshold, Path directory) {
+    this(limit, charset, threshold, limit, directory);
+  }
+
+  /**
+   * Create an output capture spilling to a file.
+   *
+   * @param limit maximum number of bytes captured on the heap
+   * @param charset used to decode lines
+   * @param threshold maximum number of bytes kept on the heap before spilling
+   * @param spillLimit maximum number of bytes spilled to the file
+   * @param directory in which the spill file is created
+   */
+  public OutputCapture(
+      long limit, Charset charset, long threshold, long spillLimit, Path directory) {
+    this.limit = limit;
+    this.charset = charset;
+    this.threshold = threshold;
+    this.spillLimit = spillLimit;
+    this.directory = directory;
+    this.buffer = new LineBuffer(limit, charset);
+  }
+
+  /**
+   * Publish each line as soon as it's complete.
+   *
+   * <p>Lines are buffered up to {@link Flow#defaultBufferSize()} per subscriber, writing blocks
+   * while the buffer is full. The subscriber is completed when this capture is closed.
+   */
+  public OutputCapture setSubscriber(Flow.Subscriber<? super String> subscriber) {
+    this.publisher = new SubmissionPublisher<>();
+    this.listener = LineBuffer.listening(charset, this::accept);
+    publisher.subscribe(subscriber);
+    return this;
+  }
+
+  /** Run the action once, as soon as a complete line matches the predicate. */
+  public OutputCapture setTerminator(Predicate<? super String> predicate, Runnable action) {
+    this.terminator = requireNonNull(predicate, "predicate must not be null");
+    this.termination = requireNonNull(action, "action must not be null");
+    this.listener = LineBuffer.listening(charset, this::accept);
+    return this;
+  }
+
+  /** Store lines for {@link #getLines()}, defaults to {@code true}. */
+  public OutputCapture setRetained(boolean retained) {
+    this.retained = retained;
+    return this;
+  }
+
+  /** Read all bytes from the stream until its end is reached and close this capture. */
+  public void drain(InputStream stream) throws IOException {
+    var bytes = new byte[8192];
+    try {
+      for (int length; (length = stream.read(bytes)) != -1; ) {
+        write(bytes, 0, length);
+      }
+    } catch (IOException | RuntimeException e) {
+      if (publisher != null) {
+        publisher.closeExceptionally(e);
+      }
+      throw e;
+    }
+    close();
+  }
+
+  /**
+   * Read the bytes that are available from the stream without blocking.
+   *
+   * <p>Nothing is read while the subscriber lags behind by a full buffer, the unread bytes apply
+   * backpressure to the writer of the stream instead of blocking the calling thread.
+   *
+   * @return number of bytes read, {@code 0} if none were available or read
+   */
+  public int drainAvailable(InputStream stream, byte[] bytes) throws IOException {
+    if (publisher != null && publisher.estimateMaximumLag() >= publisher.getMaxBufferCapacity()) {
+      return 0;
+    }
+    try {
+      var available = stream.available();
+      if (available <= 0) {
+        return 0;
+      }
+      var length = stream.read(bytes, 0, Math.min(available, bytes.length));
+      if (length <= 0) {
+        return 0;
+      }
+      write(bytes, 0, length);
+      return length;
+    } catch (IOException | RuntimeException e) {
+      if (publisher != null) {
+        publisher.closeExceptionally(e);
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    if (listener != null) {
+      // may block, don't hold the lock meanwhile
+      listener.write(bytes, offset, length);
+    }
+    if (retained) {
+      synchronized (this) {
+        store(bytes, offset, length);
+      }
+    }
+  }
+
+  /** Complete the pending line and the subscriber, if any. */
+  @Override
+  public void close() throws IOException {
+    if (listener != null) {
+      listener.close();
+    }
+    if (publisher != null) {
+      publisher.close();
+    }
+    synchronized (this) {
+      if (spill == null) {
+        buffer.close();
+      } else {
+        spill.close();
+      }
+    }
+  }
+
+  private void accept(String line) {
+    if (terminator != null && !terminated && terminator.test(line)) {
+      terminated = true;
+      termination.run();
+    }
+    if (publisher != null) {
+      publisher.submit(line);
+    }
+  }
+
+  private void store(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+    var skip = 0;
+    if (spill == null && received + length > threshold && !buffer.isTruncated()) {
+      spill = new Spill(Files.createTempFile(directory, "bartholdy-output-", ".txt"));
+      buffer.writeTo(spill);
+      buffer = null;
+      // the buffer already terminated the last line with a single \n
+      if (previous == '\r' && bytes[offset] == '\n') {
+        skip = 1;
+      }
+    }
+    received += length;
+    previous = bytes[offset + length - 1];
+    if (spill == null) {
+      buffer.write(bytes, offset, length);
+    } else {
+      spill.write(bytes, offset + skip, length - skip);
+    }
+  }
+
+  /** Return a snapshot of all lines captured so far, decoded on access. */
+  public synchronized List<String> getLines() {
+    if (spill == null) {
+      return buffer.getLines();
+    }
+    try {
+      return spill.lines();
+    } catch (IOException e) {
+      throw new UncheckedIOException("mapping spilled output failed", e);
+    }
+  }
+
+  /** Return {@code true} if at least one line was dropped due to the limit being exceeded. */
+  public synchronized boolean isTruncated() {
+    return spill == null ? buffer.isTruncated() : spill.truncated;
+  }
+
+  /** Writes output to a file, indexing line starts on the fly. */
+  private final class Spill extends OutputStream {
+
+    private final Path file;
+    private final MappedLines.Handle handle;
+    private final FileChannel channel;
+    private final OutputStream stream;
+    private long[] marks = new long[16];
+    private int count;
+    /** Number of bytes written. */
+    private long position;
+    /** Position after the last line terminator. */
+    private long end;
+
+    private boolean carriageReturn;
+    private boolean truncated;
+    private boolean closed;
+
+    Spill(Path file) throws IOException {
+      this.file = file;
+      this.handle = new MappedLines.Handle(file);
+      file.toFile().deleteOnExit();
+      this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+      this.stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (truncated) {
+        return;
+      }
+      if (position + len > spillLimit) {
+        len = (int) (spillLimit - position);
+        truncated = true;
+      }
+      stream.write(b, off, len);
+      for (int i = 0; i < len; i++) {
+        var c = b[off + i];
+        var next = position + i + 1;
+        if (c == '\n' && carriageReturn) {
+          // \r\n: the line started by \r starts one byte later
+          end = next;
+          if ((count & ((1 << MappedLines.SHIFT) - 1)) == 0) {
+            marks[count >>> MappedLines.SHIFT] = next;
+          }
+          carriageReturn = false;
+          continue;
+        }
+        carriageReturn = c == '\r';
+        if (c == '\n' || c == '\r') {
+          end = next;
+          count++;
+          if ((count & ((1 << MappedLines.SHIFT) - 1)) == 0) {
+            mark(count >>> MappedLines.SHIFT, next);
+          }
+        }
+      }
+      position += len;
+      if (truncated) {
+        // drop the partially written line
+        stream.flush();
+        channel.truncate(end);
+        position = end;
+      }
+    }
+
+    private void mark(int index, long start) {
+      if (index == marks.length) {
+        marks = Arrays.copyOf(marks, index * 2);
+      }
+      marks[index] = start;
+    }
+
+    /** Complete the pending line, if it's not empty, and close the file. */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      if (position > end) {
+        count++;
+      }
+      closed = true;
+      stream.close();
+    }
+
+    MappedLines lines() throws IOException {
+      if (!closed) {
+        stream.flush();
+      }
+      var size = closed ? position : end;
+      return new MappedLines(file, size, marks.clone(), count, charset, 30, handle);
+    }
+  }
+}
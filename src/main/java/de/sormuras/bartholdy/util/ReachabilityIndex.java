@@ -0,0 +1,99 @@
+package de.sormuras.bartholdy.util;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Transitive closure of a directed graph answering reachability queries in constant time.
+ *
+ * <p>Nodes of each strongly connected component share one bitset of all components reachable from
+ * it. Components are numbered in reverse topological order, so a component only reaches components
+ * with lower numbers and each bitset is no longer than its own number.
+ */
+public final class ReachabilityIndex {
+
+  public static ReachabilityIndex of(DirectedAcyclicGraph graph) {
+    return of(graph.toDirectedGraph());
+  }
+
+  public static ReachabilityIndex of(DirectedGraph graph) {
+    return new ReachabilityIndex(graph);
+  }
+
+  private final DirectedGraph graph;
+  private final int[] component;
+  private final BitSet[] closure;
+
+  private ReachabilityIndex(DirectedGraph graph) {
+    this.graph = graph;
+    this.component = graph.components();
+    var count = 0;
+    for (var c : component) {
+      count = Math.max(count, c + 1);
+    }
+    this.closure = new BitSet[count];
+    for (int c = 0; c < count; c++) {
+      closure[c] = new BitSet();
+    }
+    // group nodes by component, visiting components in ascending (reverse topological) order
+    var nodes = new int[component.length];
+    var starts = new int[count + 1];
+    for (var c : component) {
+      starts[c + 1]++;
+    }
+    for (int c = 0; c < count; c++) {
+      starts[c + 1] += starts[c];
+    }
+    var fill = starts.clone();
+    for (int node = 0; node < component.length; node++) {
+      nodes[fill[component[node]]++] = node;
+    }
+    for (int c = 0; c < count; c++) {
+      var reachable = closure[c];
+      for (int i = starts[c]; i < starts[c + 1]; i++) {
+        var node = nodes[i];
+        for (int j = 0; j < graph.successorCount(node); j++) {
+          var target = component[graph.successor(node, j)];
+          // an edge within the component means all of its nodes reach each other
+          reachable.set(target);
+          if (target != c) {
+            reachable.or(closure[target]);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ReachabilityIndex{"
+        + "nodes="
+        + component.length
+        + ", components="
+        + closure.length
+        + '}';
+  }
+
+  /**
+   * Return {@code true} if a path of at least one edge leads from source to target.
+   *
+   * <p>A node reaches itself only if it's part of a cycle.
+   */
+  public boolean reaches(String source, String target) {
+    return closure[component[graph.index(source)]].get(component[graph.index(target)]);
+  }
+
+  /** Return ids of all nodes reachable from the given node, sorted by their natural order. */
+  public Set<String> getReachable(String source) {
+    var reachable = closure[component[graph.index(source)]];
+    var ids = new TreeSet<String>();
+    for (int node = 0; node < component.length; node++) {
+      if (reachable.get(component[node])) {
+        ids.add(graph.name(node));
+      }
+    }
+    return Collections.unmodifiableSet(ids);
+  }
+}
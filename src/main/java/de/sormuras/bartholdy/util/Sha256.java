@@ -0,0 +1,64 @@
+package de.sormuras.bartholdy.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** SHA-256 digests and their lower-case hex encoding. */
+public final class Sha256 {
+
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+  /** Create a new SHA-256 message digest. */
+  public static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError("SHA-256 not available", e);
+    }
+  }
+
+  /** Hash the UTF-8 encoded text. */
+  public static String hash(String text) {
+    return hash(text.getBytes(UTF_8));
+  }
+
+  /** Hash the bytes. */
+  public static String hash(byte[] bytes) {
+    return hex(digest().digest(bytes));
+  }
+
+  /** Hash the content of the file, without reading it into memory. */
+  public static String hash(Path file) throws IOException {
+    var digest = digest();
+    update(digest, file);
+    return hex(digest.digest());
+  }
+
+  /** Stream the content of the file through the digest. */
+  public static void update(MessageDigest digest, Path file) throws IOException {
+    try (var stream = new DigestInputStream(Files.newInputStream(file), digest)) {
+      stream.transferTo(OutputStream.nullOutputStream());
+    }
+  }
+
+  /** Encode the bytes as lower-case hex string. */
+  public static String hex(byte[] bytes) {
+    var chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  private Sha256() {
+    throw new UnsupportedOperationException();
+  }
+}
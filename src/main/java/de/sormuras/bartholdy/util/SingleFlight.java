@@ -0,0 +1,86 @@
+package de.sormuras.bartholdy.util;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs an action at most once at a time per lock file, across threads and processes.
+ *
+ * <p>Within a JVM, concurrent callers share the future of the first caller. Across processes, the
+ * action runs while holding a lock on the file. An action should therefore check whether its work
+ * was already done by another process, before doing it.
+ */
+public final class SingleFlight {
+
+  private static final System.Logger LOG = System.getLogger(SingleFlight.class.getName());
+
+  private static final Map<Path, CompletableFuture<Path>> FLIGHTS = new ConcurrentHashMap<>();
+
+  /**
+   * Run the action while holding a lock on the given file or wait for the running action.
+   *
+   * @param lock file to lock, created if it doesn't exist
+   * @param action to run, returning the path to the created or already existing result
+   * @return the path returned by the action
+   */
+  public static Path run(Path lock, Callable<Path> action) {
+    var key = lock.toAbsolutePath().normalize();
+    var flight = new CompletableFuture<Path>();
+    var running = FLIGHTS.putIfAbsent(key, flight);
+    if (running != null) {
+      LOG.log(DEBUG, "Waiting for running flight: {0}", key);
+      return await(running);
+    }
+    try {
+      flight.complete(locked(key, action));
+    } catch (Throwable throwable) {
+      flight.completeExceptionally(throwable);
+    } finally {
+      FLIGHTS.remove(key, flight);
+    }
+    return await(flight);
+  }
+
+  private static Path locked(Path lock, Callable<Path> action) throws Exception {
+    Files.createDirectories(lock.getParent());
+    var options = new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE};
+    try (var channel = FileChannel.open(lock, options)) {
+      // blocks while another process holds the lock, released by closing the channel
+      channel.lock();
+      return action.call();
+    }
+  }
+
+  private static Path await(CompletableFuture<Path> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      if (cause instanceof IOException) {
+        throw new UncheckedIOException("single flight failed", (IOException) cause);
+      }
+      throw new RuntimeException("single flight failed", cause);
+    }
+  }
+
+  private SingleFlight() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,205 @@
+package de.sormuras.bartholdy.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Copies a directory tree in parallel, skipping files that are already up to date.
+ *
+ * <p>Directories are walked by fork/join tasks, each file is copied by a task of its own. A target
+ * file is up to date if it has the same size and last modified time as its source file; copies
+ * retain the time of their source, so copying the same tree again skips all files. In linking mode,
+ * files are hard-linked instead of copied, falling back to a copy if linking is not supported.
+ *
+ * <p>Symbolic links are not followed, they are copied as links pointing to the same path.
+ */
+public class TreeCopy {
+
+  private Predicate<Path> filter = __ -> true;
+  private boolean linking;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  @Override
+  public String toString() {
+    return "TreeCopy{" + "linking=" + linking + ", parallelism=" + parallelism + '}';
+  }
+
+  /** Set the predicate selecting the source files to copy, directories are always created. */
+  public TreeCopy setFilter(Predicate<Path> filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  /** Create hard links instead of copies, only use for read-only consumers of the target. */
+  public TreeCopy setLinking(boolean linking) {
+    this.linking = linking;
+    return this;
+  }
+
+  /** Set the maximum number of files copied in parallel. */
+  public TreeCopy setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be greater than zero: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /** Copy the source directory tree to the target directory. */
+  public Summary copy(Path source, Path target) throws IOException {
+    var summary = new Summary();
+    var root = target.toAbsolutePath().normalize();
+    Files.createDirectories(root);
+    // files are copied by blocking tasks, don't use the common pool
+    var pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new DirectoryTask(source, root, root, summary));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      pool.shutdown();
+    }
+    return summary;
+  }
+
+  /** Copy a single file, unless the target is up to date. */
+  private void copyFile(Path source, Path target, Summary summary) {
+    try {
+      copyOrLink(source, target, summary);
+    } catch (IOException e) {
+      throw new UncheckedIOException("copying " + source + " failed", e);
+    }
+  }
+
+  private void copyOrLink(Path source, Path target, Summary summary) throws IOException {
+    var attributes =
+        Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    if (attributes.isSymbolicLink()) {
+      copySymbolicLink(source, target, summary);
+      return;
+    }
+    if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+      if (isUpToDate(attributes, target)) {
+        summary.skipped.incrementAndGet();
+        return;
+      }
+      if (linking) {
+        Files.delete(target);
+      }
+    }
+    if (linking) {
+      try {
+        Files.createLink(target, source);
+        summary.linked.incrementAndGet();
+        return;
+      } catch (UnsupportedOperationException | IOException e) {
+        // different file stores or no hard link support, copy instead
+      }
+    }
+    var options =
+        new StandardCopyOption[] {
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES
+        };
+    Files.copy(source, target, options);
+    summary.copied.incrementAndGet();
+  }
+
+  private static void copySymbolicLink(Path source, Path target, Summary summary)
+      throws IOException {
+    var link = Files.readSymbolicLink(source);
+    if (Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(link)) {
+      summary.skipped.incrementAndGet();
+      return;
+    }
+    Files.deleteIfExists(target);
+    Files.createSymbolicLink(target, link);
+    summary.copied.incrementAndGet();
+  }
+
+  private static boolean isUpToDate(BasicFileAttributes source, Path target) throws IOException {
+    var attributes =
+        Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    // copied times may lose sub-millisecond precision
+    return attributes.isRegularFile()
+        && attributes.size() == source.size()
+        && attributes.lastModifiedTime().toMillis() == source.lastModifiedTime().toMillis();
+  }
+
+  /** Creates the target directory and forks tasks for all of its files and subdirectories. */
+  private final class DirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path source;
+    private final Path target;
+    private final Path root;
+    private final Summary summary;
+
+    DirectoryTask(Path source, Path target, Path root, Summary summary) {
+      this.source = source;
+      this.target = target;
+      this.root = root;
+      this.summary = summary;
+    }
+
+    @Override
+    protected void compute() {
+      var tasks = new ArrayList<ForkJoinTask<?>>();
+      try (var stream = Files.newDirectoryStream(source)) {
+        Files.createDirectories(target);
+        for (var path : stream) {
+          var destination = target.resolve(path.getFileName().toString());
+          if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            // don't copy the target into itself
+            if (!path.toAbsolutePath().normalize().equals(root)) {
+              tasks.add(new DirectoryTask(path, destination, root, summary));
+            }
+            continue;
+          }
+          if (filter.test(path)) {
+            tasks.add(ForkJoinTask.adapt(() -> copyFile(path, destination, summary)));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("copying " + source + " failed", e);
+      }
+      invokeAll(tasks);
+    }
+  }
+
+  /** Number of files copied, skipped and linked. */
+  public static final class Summary {
+
+    private final AtomicInteger copied = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger linked = new AtomicInteger();
+
+    public int getCopied() {
+      return copied.get();
+    }
+
+    public int getSkipped() {
+      return skipped.get();
+    }
+
+    public int getLinked() {
+      return linked.get();
+    }
+
+    @Override
+    public String toString() {
+      return "Summary{" + "copied=" + copied + ", skipped=" + skipped + ", linked=" + linked + '}';
+    }
+  }
+}
@@ -1,2 +1,2 @@
-/** Internal utilities. */
+/** Graph, output capturing and other utilities. */
 package de.sormuras.bartholdy.util;
@@ -1,8 +1,10 @@
 /** Module descriptor for: {@code de.sormuras.bartholdy} */
 module de.sormuras.bartholdy {
   requires java.compiler;
+  requires transitive java.net.http;
 
   exports de.sormuras.bartholdy;
   exports de.sormuras.bartholdy.jdk;
   exports de.sormuras.bartholdy.tool;
+  exports de.sormuras.bartholdy.util;
 }
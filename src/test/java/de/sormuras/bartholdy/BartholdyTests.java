@@ -5,14 +5,24 @@ import static org.junit.jupiter.api.Assertions.assertLinesMatch;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class BartholdyTests {
 
@@ -167,4 +177,81 @@ class BartholdyTests {
     Bartholdy.treeDelete(root);
     assertTrue(Files.notExists(root));
   }
+
+  /** Create a zip file containing the entries, marking those with a mode as made on unix. */
+  private static Path zip(Path file, Map<String, Integer> modes, String... names) throws Exception {
+    var bytes = new ByteArrayOutputStream();
+    try (var zip = new ZipOutputStream(bytes)) {
+      for (var name : names) {
+        zip.putNextEntry(new ZipEntry(name));
+        if (!name.endsWith("/")) {
+          zip.write(name.getBytes(StandardCharsets.UTF_8));
+        }
+        zip.closeEntry();
+      }
+    }
+    var buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < buffer.limit() - 46; i++) {
+      if (buffer.getInt(i) != 0x02014b50) {
+        continue;
+      }
+      var name = new byte[buffer.getShort(i + 28)];
+      buffer.position(i + 46);
+      buffer.get(name);
+      var mode = modes.get(new String(name, StandardCharsets.UTF_8));
+      if (mode != null) {
+        buffer.put(i + 5, (byte) 3);
+        buffer.putInt(i + 38, mode << 16);
+      }
+    }
+    return Files.write(file, buffer.array());
+  }
+
+  @Test
+  void installExtractsIntoToolsDirectory(@TempDir Path temp) throws Exception {
+    var tools = Files.createDirectory(temp.resolve("tools"));
+    var names = new String[] {"tool-1/", "tool-1/bin/", "tool-1/bin/tool", "tool-1/README"};
+    var zip = zip(temp.resolve("tool-1.zip"), Map.of("tool-1/bin/tool", 0100755), names);
+    var home = Bartholdy.install(zip.toUri(), tools);
+    assertEquals(tools.resolve("tool-1").toAbsolutePath(), home);
+    assertEquals("tool-1/README", Files.readString(home.resolve("README")));
+    assertTreeDumpMatches(
+        tools,
+        tools.toString(),
+        ".",
+        "./tool-1",
+        "./tool-1.zip",
+        "./tool-1.zip.install.lock",
+        "./tool-1.zip.lock",
+        "./tool-1/README",
+        "./tool-1/bin",
+        "./tool-1/bin/tool");
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      var permissions = Files.getPosixFilePermissions(home.resolve("bin/tool"));
+      assertEquals("rwxr-xr-x", PosixFilePermissions.toString(permissions));
+    }
+    // installed already
+    assertEquals(home, Bartholdy.install(zip.toUri(), tools));
+  }
+
+  @Test
+  void unzipRejectsEntriesOutsideOfTarget(@TempDir Path temp) throws Exception {
+    var zip = zip(temp.resolve("evil.zip"), Map.of(), "good.txt", "../evil.txt");
+    var target = temp.resolve("target");
+    var e = assertThrows(UncheckedIOException.class, () -> Bartholdy.unzip(zip, target));
+    assertEquals("entry outside of target directory: ../evil.txt", e.getCause().getMessage());
+    assertTrue(Files.notExists(temp.resolve("evil.txt")));
+    assertTrue(Files.notExists(target.resolve("good.txt")));
+  }
+
+  @Test
+  void unzipReplacesExistingFiles(@TempDir Path temp) throws Exception {
+    var zip = zip(temp.resolve("some.zip"), Map.of(), "a/", "a/b.txt", "c.txt");
+    var target = temp.resolve("target");
+    Bartholdy.unzip(zip, target);
+    Files.writeString(target.resolve("a/b.txt"), "modified");
+    Bartholdy.unzip(zip, target);
+    assertEquals("a/b.txt", Files.readString(target.resolve("a/b.txt")));
+    assertEquals("c.txt", Files.readString(target.resolve("c.txt")));
+  }
 }
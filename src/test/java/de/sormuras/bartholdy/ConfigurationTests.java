@@ -27,6 +27,13 @@ class ConfigurationTests {
     assertEquals(List.of(), cfg.getArguments());
     assertEquals(Map.of(), cfg.getEnvironment());
     assertEquals(Duration.ofSeconds(9), cfg.getTimeout());
+    assertEquals(64 * 1024 * 1024, cfg.getOutputLimit());
+    assertEquals(8 * 1024 * 1024, cfg.getOutputSpillThreshold());
+    assertEquals(Long.MAX_VALUE, cfg.getOutputSpillLimit());
+    assertEquals(Map.of(), cfg.getOutputSubscribers());
+    assertTrue(cfg.isOutputRetained());
+    assertEquals(Map.of(), cfg.getTerminationPredicates());
+    assertEquals(List.of(), cfg.getInputPaths());
     assertEquals(Path.of(System.getProperty("java.io.tmpdir")), cfg.getTemporaryDirectory());
     assertEquals(Path.of(".").normalize().toAbsolutePath(), cfg.getWorkingDirectory());
   }
@@ -37,6 +44,9 @@ class ConfigurationTests {
         "Configuration\\{"
             + "arguments=\\[], "
             + "timeout=PT9S, "
+            + "outputLimit=67108864, "
+            + "outputSpillThreshold=8388608, "
+            + "outputSpillLimit=9223372036854775807, "
             + "environment=\\{}, "
             + "temporaryDirectory=.+, "
             + "workingDirectory=.+"
@@ -81,4 +91,43 @@ class ConfigurationTests {
     var configuration = Configuration.builder().setArguments(List.of(1, 2, 3)).build();
     assertIterableEquals(List.of("1", "2", "3"), configuration.getArguments());
   }
+
+  @Test
+  void minimalImplementationProvidesDefaults() {
+    var cfg =
+        new Configuration() {
+          @Override
+          public List<String> getArguments() {
+            return List.of();
+          }
+
+          @Override
+          public Map<String, String> getEnvironment() {
+            return Map.of();
+          }
+
+          @Override
+          public Path getTemporaryDirectory() {
+            return Path.of(".");
+          }
+
+          @Override
+          public Path getWorkingDirectory() {
+            return Path.of(".");
+          }
+
+          @Override
+          public Duration getTimeout() {
+            return Duration.ZERO;
+          }
+        };
+    var defaults = Configuration.builder().build();
+    assertEquals(defaults.getOutputLimit(), cfg.getOutputLimit());
+    assertEquals(defaults.getOutputSpillThreshold(), cfg.getOutputSpillThreshold());
+    assertEquals(defaults.getOutputSpillLimit(), cfg.getOutputSpillLimit());
+    assertEquals(defaults.getOutputSubscribers(), cfg.getOutputSubscribers());
+    assertEquals(defaults.isOutputRetained(), cfg.isOutputRetained());
+    assertEquals(defaults.getTerminationPredicates(), cfg.getTerminationPredicates());
+    assertEquals(defaults.getInputPaths(), cfg.getInputPaths());
+  }
 }
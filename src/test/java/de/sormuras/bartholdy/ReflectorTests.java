@@ -97,6 +97,28 @@ class ReflectorTests {
     assertTrue(cause.getMessage().endsWith("with modifiers \"private\""));
   }
 
+  @Test
+  void reflectUsesCustomMethodAndCachedPlanRepeatedly() {
+    var options = new ClassWithCustomMethod();
+    var expected = List.of("-a", "1", "--custom", "2", "--name-with-upper-case", "x");
+    for (int i = 0; i < 3; i++) {
+      assertLinesMatch(expected, Reflector.reflect(options));
+    }
+    options.b = 3;
+    options.nameWithUpperCase = null;
+    assertLinesMatch(List.of("-a", "1", "--custom", "3"), Reflector.reflect(options));
+  }
+
+  @Test
+  void reflectUsesCustomMethodOfSubclassForSuperclassField() {
+    var options = new SubclassWithCustomMethod();
+    var fields = Arrays.stream(ClassWithCustomMethod.class.getDeclaredFields());
+    var arguments = new ArrayList<String>();
+    new Reflector(options, __ -> fields, arguments::add).reflect();
+    var expected = List.of("--sub", "1", "-b", "2", "--name-with-upper-case", "x");
+    assertLinesMatch(expected, arguments);
+  }
+
   @Test
   void reflectIgnoresStaticFields() {
     assertLinesMatch(List.of("-a", "1"), Reflector.reflect(new ClassWithStaticField()));
@@ -112,6 +134,26 @@ class ReflectorTests {
     }
   }
 
+  @SuppressWarnings("unused")
+  private static class ClassWithCustomMethod {
+
+    int a = 1;
+    int b = 2;
+    String nameWithUpperCase = "x";
+
+    void b(Reflector reflector) {
+      reflector.add("--custom").add(b);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static class SubclassWithCustomMethod extends ClassWithCustomMethod {
+
+    void a(Reflector reflector) {
+      reflector.add("--sub").add(a);
+    }
+  }
+
   private static class ClassWithStaticField {
 
     int a = 1;
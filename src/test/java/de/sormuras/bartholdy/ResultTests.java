@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 class ResultTests {
@@ -19,6 +21,7 @@ class ResultTests {
     var result = Result.builder().build();
     assertEquals(Integer.MIN_VALUE, result.getExitCode());
     assertFalse(result.isTimedOut());
+    assertFalse(result.isTerminatedEarly());
     assertEquals(Duration.ZERO, result.getDuration());
     assertEquals("", result.getOutput(null));
     assertEquals("", result.getOutput("(:"));
@@ -27,7 +30,8 @@ class ResultTests {
 
   @Test
   void defaultStringRepresentation() {
-    var expected = "Result{exitCode=-2147483648, timedOut=false, duration=PT0S, lines={}}";
+    var expected =
+        "Result{exitCode=-2147483648, timedOut=false, terminatedEarly=false, duration=PT0S, lines={}}";
     assertEquals(expected, Result.builder().build().toString());
   }
 
@@ -35,5 +39,51 @@ class ResultTests {
   void multilines() {
     var result = Result.builder().setOutput("*", "1\n2\r3\r\n").build();
     assertEquals(List.of("1", "2", "3"), result.getOutputLines("*"));
+    assertEquals("1\n2\n3", result.getOutput("*"));
+  }
+
+  @Test
+  void emptyOutputIsOneEmptyLine() {
+    var result = Result.builder().setOutput("*", "").build();
+    assertEquals(List.of(""), result.getOutputLines("*"));
+    assertEquals("", result.getOutput("*"));
+    assertEquals(List.of(), result.getOutputLines("?"));
+  }
+
+  @Test
+  void outputLineStream() {
+    var result = Result.builder().setOutput("*", "1\n2").setOutput("#", List.of("3")).build();
+    var lines = result.getOutputLineStream("*").map(CharSequence::toString);
+    assertEquals(List.of("1", "2"), lines.collect(Collectors.toList()));
+    assertEquals("3", result.getOutputLineStream("#").findFirst().orElseThrow().toString());
+    assertEquals(0, result.getOutputLineStream("?").count());
+  }
+
+  @Test
+  void minimalImplementationProvidesDefaults() {
+    var result =
+        new Result() {
+          @Override
+          public int getExitCode() {
+            return 0;
+          }
+
+          @Override
+          public Duration getDuration() {
+            return Duration.ZERO;
+          }
+
+          @Override
+          public List<String> getOutputLines(String key) {
+            return List.of();
+          }
+
+          @Override
+          public boolean isTimedOut() {
+            return false;
+          }
+        };
+    assertEquals(Set.of(), result.getOutputKeys());
+    assertFalse(result.isTerminatedEarly());
   }
 }
@@ -0,0 +1,105 @@
+package de.sormuras.bartholdy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ToolBatchTests {
+
+  @Test
+  void defaults() {
+    var batch = new ToolBatch(new Echo());
+    assertEquals(Runtime.getRuntime().availableProcessors(), batch.getParallelism());
+    assertEquals(0, batch.getMemoryPerRun());
+    assertEquals(ToolBatch.Policy.COLLECT_ALL, batch.getPolicy());
+    assertEquals(batch.getParallelism(), batch.getEffectiveParallelism());
+    assertThrows(IllegalArgumentException.class, () -> batch.setParallelism(0));
+    assertThrows(IllegalArgumentException.class, () -> batch.setMemoryPerRun(-1));
+  }
+
+  @Test
+  void memoryLimitsParallelism() {
+    var batch = new ToolBatch(new Echo()).setParallelism(64);
+    batch.setMemoryPerRun(Runtime.getRuntime().maxMemory());
+    assertEquals(1, batch.getEffectiveParallelism());
+    batch.setMemoryPerRun(Long.MAX_VALUE);
+    assertEquals(1, batch.getEffectiveParallelism());
+    batch.setMemoryPerRun(1);
+    assertEquals(64, batch.getEffectiveParallelism());
+  }
+
+  @Test
+  void resultsAreReturnedInOrder() {
+    var configurations =
+        IntStream.range(0, 100).mapToObj(Configuration::of).collect(Collectors.toList());
+    var summary = new ToolBatch(new Echo()).setParallelism(8).run(configurations);
+    assertTrue(summary.isSuccessful(), summary::toString);
+    assertFalse(summary.isAborted());
+    var expected = IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.toList());
+    var actual = new ArrayList<String>();
+    summary.getResults().forEach(result -> actual.add(result.getOutput("out")));
+    assertEquals(expected, actual);
+    assertEquals(Duration.ofMillis(100), summary.getCumulativeDuration());
+  }
+
+  @Test
+  void collectAllRunsEverything() {
+    var summary = new ToolBatch(new Echo()).run(Configuration.of("fail"), Configuration.of(1));
+    assertFalse(summary.isSuccessful());
+    assertFalse(summary.isAborted());
+    assertEquals(1, summary.getFailures().size());
+    assertEquals(-1, summary.getResults().get(0).getExitCode());
+    assertEquals(
+        "java.lang.IllegalStateException: fail", summary.getResults().get(0).getOutput("out"));
+    assertEquals("1", summary.getResults().get(1).getOutput("out"));
+  }
+
+  @Test
+  void failFastCancelsRemainingRuns() {
+    var configurations = new ArrayList<Configuration>();
+    configurations.add(Configuration.of("fail"));
+    IntStream.range(0, 10).mapToObj(Configuration::of).forEach(configurations::add);
+    var batch = new ToolBatch(new Echo()).setParallelism(1).setPolicy(ToolBatch.Policy.FAIL_FAST);
+    var summary = batch.run(configurations);
+    assertTrue(summary.isAborted());
+    assertEquals(11, summary.getFailures().size());
+    assertEquals(-1, summary.getResults().get(0).getExitCode());
+    assertEquals(
+        List.of("cancelled due to previous failure"),
+        summary.getResults().get(10).getOutputLines("err"));
+  }
+
+  static class Echo implements Tool {
+
+    @Override
+    public String getName() {
+      return "echo";
+    }
+
+    @Override
+    public String getVersion() {
+      return "1";
+    }
+
+    @Override
+    public Result run(Configuration configuration) {
+      var argument = configuration.getArguments().get(0);
+      if (argument.equals("fail")) {
+        throw new IllegalStateException(argument);
+      }
+      return Result.builder()
+          .setExitCode(0)
+          .setDuration(Duration.ofMillis(1))
+          .setOutput("out", argument)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package de.sormuras.bartholdy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ToolCacheTests {
+
+  @Test
+  void hitReturnsRecordedResultWithoutRunning(@TempDir Path temp) throws Exception {
+    var counter = new CountingTool();
+    var tool = new ToolCache(temp.resolve("cache")).wrap(counter);
+    var input = Files.writeString(temp.resolve("input.txt"), "1");
+    var configuration = Configuration.builder().setArguments("a", "b").addInputPath(input).build();
+
+    var first = tool.run(configuration);
+    var second = tool.run(configuration);
+    assertEquals(1, counter.runs.get());
+    assertEquals(first.getExitCode(), second.getExitCode());
+    assertEquals(Duration.ofSeconds(3), second.getDuration());
+    assertEquals(Set.of("err", "out"), second.getOutputKeys());
+    assertEquals(List.of("run 1", "", "a b"), second.getOutputLines("out"));
+    assertEquals(List.of(), second.getOutputLines("err"));
+
+    Files.writeString(input, "2");
+    assertEquals(List.of("run 2", "", "a b"), tool.run(configuration).getOutputLines("out"));
+    var other = Configuration.builder().setArguments("a").addInputPath(input).build();
+    assertEquals(List.of("run 3", "", "a"), tool.run(other).getOutputLines("out"));
+    assertEquals(3, counter.runs.get());
+  }
+
+  @Test
+  void keyCoversContentOfInputDirectories(@TempDir Path temp) throws Exception {
+    var cache = new ToolCache(temp.resolve("cache"));
+    var directory = Files.createDirectories(temp.resolve("inputs/a"));
+    var configuration = Configuration.builder().addInputPath(temp.resolve("inputs")).build();
+    var tool = new CountingTool();
+    var empty = cache.key(tool, configuration);
+    Files.writeString(directory.resolve("x.txt"), "x");
+    var one = cache.key(tool, configuration);
+    assertNotEquals(empty, one);
+    assertEquals(one, cache.key(tool, configuration));
+    Files.writeString(directory.resolve("x.txt"), "y");
+    assertNotEquals(one, cache.key(tool, configuration));
+  }
+
+  @Test
+  void keyCoversInputPathsOfTheTool(@TempDir Path temp) throws Exception {
+    var cache = new ToolCache(temp.resolve("cache"));
+    var configuration = Configuration.of();
+    var one = new CountingTool();
+    one.input = Files.writeString(temp.resolve("one.jar"), "1");
+    var two = new CountingTool();
+    two.input = Files.writeString(temp.resolve("two.jar"), "2");
+    assertNotEquals(cache.key(one, configuration), cache.key(two, configuration));
+    assertEquals("run 1", cache.run(one, configuration).getOutputLines("out").get(0));
+    assertEquals("run 1", cache.run(two, configuration).getOutputLines("out").get(0));
+    assertEquals("run 1", cache.run(one, configuration).getOutputLines("out").get(0));
+    assertEquals(1, one.runs.get());
+    assertEquals(1, two.runs.get());
+  }
+
+  @Test
+  void toolInputPathsAreResolvedAgainstTheWorkingDirectory(@TempDir Path temp) throws Exception {
+    var cache = new ToolCache(temp.resolve("cache"));
+    var one = Files.createDirectories(temp.resolve("one"));
+    Files.writeString(one.resolve("tool.jar"), "1");
+    var tool = new CountingTool();
+    tool.input = Path.of("tool.jar");
+    var configuration = Configuration.builder().setWorkingDirectory(one).build();
+    var key = cache.key(tool, configuration);
+    Files.writeString(one.resolve("tool.jar"), "2");
+    assertNotEquals(key, cache.key(tool, configuration));
+  }
+
+  @Test
+  void keyCoversPropertiesOfTheTool(@TempDir Path temp) {
+    var cache = new ToolCache(temp);
+    var configuration = Configuration.of();
+    var tool = new CountingTool();
+    var none = cache.key(tool, configuration);
+    tool.properties = Map.of("COUNTING_HOME", "/one");
+    var one = cache.key(tool, configuration);
+    tool.properties = Map.of("COUNTING_HOME", "/two");
+    var two = cache.key(tool, configuration);
+    assertNotEquals(none, one);
+    assertNotEquals(one, two);
+  }
+
+  @Test
+  void failedResultsAreNotRecorded(@TempDir Path temp) throws Exception {
+    var counter = new CountingTool();
+    counter.exitCode = 1;
+    var tool = new ToolCache(temp).wrap(counter);
+    tool.run(Configuration.of());
+    var result = tool.run(Configuration.of());
+    assertEquals(1, result.getExitCode());
+    assertEquals(2, counter.runs.get());
+    assertEquals(List.of(), results(temp));
+  }
+
+  @Test
+  void toolsThatAreNotCacheableAlwaysRun(@TempDir Path temp) throws Exception {
+    var counter = new CountingTool();
+    counter.cacheable = false;
+    var tool = new ToolCache(temp).wrap(counter);
+    tool.run(Configuration.of());
+    tool.run(Configuration.of());
+    assertEquals(2, counter.runs.get());
+    assertEquals(List.of(), results(temp));
+  }
+
+  @Test
+  void leastRecentlyUsedResultsAreEvicted(@TempDir Path temp) throws Exception {
+    // each result takes about 60 bytes, so two fit into the store
+    var cache = new ToolCache(temp).setMaximumSize(130);
+    var counter = new CountingTool();
+    var tool = cache.wrap(counter);
+    tool.run(Configuration.of("first"));
+    var first = results(temp);
+    Thread.sleep(50);
+    tool.run(Configuration.of("second"));
+    Thread.sleep(50);
+    // reading the first result makes the second one the least recently used
+    tool.run(Configuration.of("first"));
+    assertEquals(2, counter.runs.get());
+    tool.run(Configuration.of("third"));
+    assertEquals(3, counter.runs.get());
+    var remaining = results(temp);
+    assertEquals(2, remaining.size(), remaining::toString);
+    assertTrue(remaining.containsAll(first), remaining::toString);
+    assertTrue(remaining.stream().mapToLong(ToolCacheTests::size).sum() <= 130);
+    tool.run(Configuration.of("second"));
+    assertEquals(4, counter.runs.get());
+  }
+
+  @Test
+  void timedOutResultsAreNotRecorded(@TempDir Path temp) throws Exception {
+    var counter = new CountingTool();
+    counter.timedOut = true;
+    var tool = new ToolCache(temp).wrap(counter);
+    tool.run(Configuration.of());
+    var result = tool.run(Configuration.of());
+    assertTrue(result.isTimedOut());
+    assertEquals(2, counter.runs.get());
+    assertFalse(Files.list(temp).anyMatch(path -> path.toString().endsWith(".result")));
+  }
+
+  private static List<Path> results(Path directory) throws Exception {
+    try (var stream = Files.list(directory)) {
+      return stream
+          .filter(path -> path.toString().endsWith(".result"))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long size(Path path) {
+    return path.toFile().length();
+  }
+
+  static class CountingTool implements Tool {
+
+    final AtomicInteger runs = new AtomicInteger();
+    int exitCode;
+    boolean timedOut;
+    boolean cacheable = true;
+    Path input;
+    Map<String, String> properties = Map.of();
+
+    @Override
+    public String getName() {
+      return "counting";
+    }
+
+    @Override
+    public String getVersion() {
+      return "1";
+    }
+
+    @Override
+    public List<Path> getInputPaths() {
+      return input == null ? List.of() : List.of(input);
+    }
+
+    @Override
+    public Map<String, String> getCacheProperties() {
+      return properties;
+    }
+
+    @Override
+    public boolean isCacheable() {
+      return cacheable;
+    }
+
+    @Override
+    public Result run(Configuration configuration) {
+      var run = runs.incrementAndGet();
+      var arguments = String.join(" ", configuration.getArguments());
+      return Result.builder()
+          .setExitCode(exitCode)
+          .setDuration(Duration.ofSeconds(3))
+          .setTimedOut(timedOut)
+          .setOutput("out", List.of("run " + run, "", arguments))
+          .setOutput("err", List.of())
+          .build();
+    }
+  }
+}
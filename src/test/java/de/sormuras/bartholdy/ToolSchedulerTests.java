@@ -0,0 +1,99 @@
+package de.sormuras.bartholdy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.util.DirectedAcyclicGraph;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class ToolSchedulerTests {
+
+  /** Diamond: "a" depends on "b" and "c", both depend on "d"; "x" is independent. */
+  private static DirectedAcyclicGraph diamond() {
+    var graph = new DirectedAcyclicGraph();
+    graph.addEdge("a", "b");
+    graph.addEdge("a", "c");
+    graph.addEdge("b", "d");
+    graph.addEdge("c", "d");
+    graph.addNode("x");
+    return graph;
+  }
+
+  @Test
+  void dependenciesCompleteBeforeDependents() {
+    var sleeps = Map.of("a", 10, "b", 10, "c", 100, "d", 10, "x", 1);
+    var done = ConcurrentHashMap.<String>newKeySet();
+    var violations = new CopyOnWriteArrayList<String>();
+    var graph = diamond();
+    var report =
+        new ToolScheduler()
+            .setParallelism(4)
+            .run(
+                graph,
+                node -> {
+                  for (var dependency : graph.getSuccessors(node)) {
+                    if (!done.contains(dependency)) {
+                      violations.add(node + " started before " + dependency);
+                    }
+                  }
+                  sleep(sleeps.get(node));
+                  done.add(node);
+                  return Result.builder().setExitCode(0).build();
+                });
+    assertEquals(List.of(), violations);
+    assertTrue(report.isSuccessful(), report::toString);
+    assertEquals(Set.of("a", "b", "c", "d", "x"), report.getResults().keySet());
+    assertEquals(Set.of("a", "b", "c", "d", "x"), report.getDurations().keySet());
+    assertEquals(List.of("d", "c", "a"), report.getCriticalPath());
+    assertTrue(report.getCriticalPathDuration().compareTo(Duration.ofMillis(120)) >= 0);
+  }
+
+  @Test
+  void failureSkipsDependents() {
+    var report =
+        new ToolScheduler()
+            .run(
+                diamond(),
+                node -> {
+                  if (node.equals("b")) {
+                    throw new IllegalStateException(node);
+                  }
+                  return Result.builder().setExitCode(0).build();
+                });
+    assertFalse(report.isSuccessful());
+    assertEquals(List.of("a", "b"), report.getFailures());
+    assertEquals(-1, report.getResults().get("b").getExitCode());
+    assertEquals(
+        "skipped due to failed dependency: b", report.getResults().get("a").getOutput("err"));
+    assertEquals(0, report.getResults().get("c").getExitCode());
+    assertFalse(report.getDurations().containsKey("a"));
+    var nodes = List.copyOf(report.getResults().keySet());
+    assertEquals("a", nodes.get(nodes.size() - 1));
+  }
+
+  @Test
+  void runToolPerNode() {
+    var graph = new DirectedAcyclicGraph();
+    graph.addEdge("2", "1");
+    var tool = new ToolBatchTests.Echo();
+    var report = new ToolScheduler().run(graph, tool, Configuration::of);
+    assertTrue(report.isSuccessful(), report::toString);
+    assertEquals(List.of("1", "2"), List.copyOf(report.getResults().keySet()));
+    assertEquals("2", report.getResults().get("2").getOutput("out"));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
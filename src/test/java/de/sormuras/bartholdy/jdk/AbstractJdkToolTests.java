@@ -0,0 +1,38 @@
+package de.sormuras.bartholdy.jdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import de.sormuras.bartholdy.Configuration;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class AbstractJdkToolTests {
+
+  @Test
+  void subscriberSeesLineBeforeToolReturns() {
+    var lines = new CopyOnWriteArrayList<String>();
+    var configuration = Configuration.builder().setOutputConsumer("out", lines::add).build();
+    var future = new Blocker().runAsync(configuration);
+    try {
+      assertTimeoutPreemptively(
+          Duration.ofSeconds(5),
+          () -> {
+            while (lines.isEmpty()) {
+              Thread.sleep(10);
+            }
+          });
+      assertFalse(future.isDone());
+    } finally {
+      BlockerToolProvider.RELEASE.countDown();
+    }
+    var result = future.join();
+    assertEquals(0, result.getExitCode(), result::toString);
+    assertEquals(List.of("started"), result.getOutputLines("out"));
+  }
+
+  static class Blocker extends AbstractJdkTool {}
+}
@@ -0,0 +1,28 @@
+package de.sormuras.bartholdy.jdk;
+
+import java.io.PrintWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.spi.ToolProvider;
+
+/** Prints a line without flushing and blocks until released. */
+public class BlockerToolProvider implements ToolProvider {
+
+  static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+  @Override
+  public String name() {
+    return "blocker";
+  }
+
+  @Override
+  public int run(PrintWriter out, PrintWriter err, String... args) {
+    out.println("started");
+    try {
+      return RELEASE.await(9, TimeUnit.SECONDS) ? 0 : 1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 2;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package de.sormuras.bartholdy.jdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.Bartholdy;
+import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.Result;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompileAvoidanceTests {
+
+  private Path temp;
+  private CompileAvoidance avoidance;
+
+  @BeforeEach
+  void createTemporaryDirectory() throws Exception {
+    temp = Files.createTempDirectory("bartholdy-compile-avoidance-");
+    avoidance = new CompileAvoidance(temp.resolve("store"));
+  }
+
+  @AfterEach
+  void deleteTemporaryDirectory() {
+    Bartholdy.treeDelete(temp);
+  }
+
+  @Test
+  void bodyChangeOfDependencyAvoidsCompilationOfDependent() throws Exception {
+    var b = source("b/B.java", "package b; public class B { public int v() { return 1; } }");
+    var a = source("a/A.java", "package a; class A { int v = new b.B().v(); }");
+    assertCompiled(compileB(b));
+    assertCompiled(compileA(a));
+    var abi = CompileAvoidance.fingerprint(temp.resolve("classes-b"));
+
+    // body only
+    source("b/B.java", "package b; public class B { public int v() { return 2; } }");
+    assertCompiled(compileB(b));
+    assertEquals(abi, CompileAvoidance.fingerprint(temp.resolve("classes-b")));
+    assertAvoided(compileA(a));
+
+    // destination deleted: restored from store
+    Bartholdy.treeDelete(temp.resolve("classes-a"));
+    assertAvoided(compileA(a));
+    assertTrue(Files.isRegularFile(temp.resolve("classes-a/a/A.class")));
+
+    // private member added
+    source("b/B.java", "package b; public class B { private int x; public int v() { return x; } }");
+    assertCompiled(compileB(b));
+    assertAvoided(compileA(a));
+
+    // public member added
+    source("b/B.java", "package b; public class B { public int x; public int v() { return x; } }");
+    assertCompiled(compileB(b));
+    assertNotEquals(abi, CompileAvoidance.fingerprint(temp.resolve("classes-b")));
+    assertCompiled(compileA(a));
+    assertAvoided(compileA(a));
+  }
+
+  @Test
+  void packagePrivateSignatureChangeCompilesDependent() throws Exception {
+    var b = source("b/B.java", "package b; public class B { static int v() { return 1; } }");
+    var a = source("b/BTests.java", "package b; class BTests { int v = B.v(); }");
+    assertCompiled(compileB(b));
+    assertCompiled(compileA(a));
+    source("b/B.java", "package b; public class B { static long v() { return 1; } }");
+    assertCompiled(compileB(b));
+    var result = compileA(a);
+    assertEquals(1, result.getExitCode(), result::toString);
+  }
+
+  @Test
+  void modifiedDestinationIsRestoredFromStore() throws Exception {
+    var b = source("b/B.java", "package b; public class B { public int v() { return 1; } }");
+    var a = source("a/A.java", "package a; class A { int v = new b.B().v(); }");
+    assertCompiled(compileB(b));
+    assertCompiled(compileA(a));
+    var classes = temp.resolve("classes-a/a/A.class");
+    var bytes = Files.readAllBytes(classes);
+    Files.write(classes, new byte[] {1, 2, 3});
+    assertAvoided(compileA(a));
+    assertArrayEquals(bytes, Files.readAllBytes(classes));
+  }
+
+  @Test
+  void constantValueIsPartOfTheFingerprint() throws Exception {
+    var b = source("b/B.java", "package b; public class B { public static final int C = 1; }");
+    assertCompiled(compileB(b));
+    var abi = CompileAvoidance.fingerprint(temp.resolve("classes-b"));
+    source("b/B.java", "package b; public class B { public static final int C = 2; }");
+    assertCompiled(compileB(b));
+    assertNotEquals(abi, CompileAvoidance.fingerprint(temp.resolve("classes-b")));
+  }
+
+  @Test
+  void failedCompilationIsNotRecorded() throws Exception {
+    var b = source("b/B.java", "package b; public class B { int i = \"\"; }");
+    assertEquals(1, compileB(b).getExitCode());
+    assertEquals(1, compileB(b).getExitCode());
+  }
+
+  private Result compileB(Path source) {
+    var destination = temp.resolve("classes-b");
+    return avoidance.compile(Configuration.of(), destination, List.of(source), List.of());
+  }
+
+  private Result compileA(Path source) {
+    var destination = temp.resolve("classes-a");
+    var dependencies = List.of(temp.resolve("classes-b"));
+    return avoidance.compile(Configuration.of(), destination, List.of(source), dependencies);
+  }
+
+  private Path source(String name, String code) throws Exception {
+    var path = temp.resolve("src").resolve(name);
+    Files.createDirectories(path.getParent());
+    return Files.writeString(path, code);
+  }
+
+  private static void assertCompiled(Result result) {
+    assertEquals(0, result.getExitCode(), result::toString);
+    assertFalse(result.getOutput("avoided").startsWith("ABI"), result::toString);
+  }
+
+  private static void assertAvoided(Result result) {
+    assertEquals(0, result.getExitCode(), result::toString);
+    assertTrue(result.getOutput("avoided").startsWith("ABI"), result::toString);
+  }
+}
@@ -0,0 +1,157 @@
+package de.sormuras.bartholdy.jdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.sormuras.bartholdy.Bartholdy;
+import de.sormuras.bartholdy.Configuration;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+
+class CompilerServiceTests {
+
+  @Test
+  void compileRepeatedlyWithWarmFileManager() {
+    try (var service = new CompilerService()) {
+      for (int i = 0; i < 3; i++) {
+        var source = Map.of("a.A" + i, "package a; class A" + i + " {}");
+        var compilation = service.compile(Configuration.of(), source);
+        assertEquals(0, compilation.getExitCode(), compilation::toString);
+        assertEquals(1, compilation.getClasses().size());
+      }
+      assertEquals(0, service.getInvalidations());
+      service.invalidate();
+      assertEquals(1, service.getInvalidations());
+    }
+  }
+
+  @Test
+  void fileManagerOptionsKeepFileManagersWarm() throws Exception {
+    var temp = Files.createTempDirectory("bartholdy-compiler-service-");
+    try (var service = new CompilerService()) {
+      var options = List.of("-encoding", "UTF-8", "-d", temp.toString());
+      for (int i = 0; i < 3; i++) {
+        var source = Map.of("A" + i, "class A" + i + " { String s = \"\u00e4\"; }");
+        var compilation = service.compile(Configuration.of(options), source);
+        assertEquals(0, compilation.getExitCode(), compilation::toString);
+      }
+      assertEquals(1, service.getWarmFileManagers());
+      service.compile(Configuration.of("--source-path=" + temp), Map.of("B", "class B {}"));
+      service.compile(Configuration.of(), Map.of("C", "class C {}"));
+      assertEquals(3, service.getWarmFileManagers());
+      for (int release = 9; release <= 11; release++) {
+        service.compile(Configuration.of("--release", release), Map.of("D", "class D {}"));
+      }
+      assertEquals(4, service.getWarmFileManagers());
+      assertEquals(0, service.getInvalidations());
+    } finally {
+      Bartholdy.treeDelete(temp);
+    }
+  }
+
+  @Test
+  void pathOptionOverridesClassPath() throws Exception {
+    var temp = Files.createTempDirectory("bartholdy-compiler-service-");
+    var jar = temp.resolve("b.jar");
+    var user = Map.of("a.A", "package a; class A { int i = new b.B().version(); }");
+    try (var service = new CompilerService()) {
+      jar(jar, "package b; public class B { public int version() { return 1; } }");
+      assertEquals(1, service.compile(Configuration.of(), user).getExitCode());
+      var configuration = Configuration.of("--class-path", jar.toString());
+      var compilation = service.compile(configuration, user);
+      assertEquals(0, compilation.getExitCode(), compilation::toString);
+
+      jar(jar, "package b; public class B {}");
+      Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+      assertEquals(1, service.compile(configuration, user).getExitCode());
+      assertEquals(1, service.getInvalidations());
+    } finally {
+      Bartholdy.treeDelete(temp);
+    }
+  }
+
+  @Test
+  void fileManagerOptionsDontLeakIntoLaterCompilations() throws Exception {
+    var temp = Files.createTempDirectory("bartholdy-compiler-service-");
+    var user = Map.of("a.A", "package a; class A { b.B b; }");
+    try (var service = new CompilerService()) {
+      Files.createDirectories(temp.resolve("b"));
+      Files.writeString(temp.resolve("b/B.java"), "package b; public class B {}");
+      var configuration = Configuration.of("--source-path", temp.toString());
+      var compilation = service.compile(configuration, user);
+      assertEquals(0, compilation.getExitCode(), compilation::toString);
+      assertEquals(1, service.compile(Configuration.of(), user).getExitCode());
+      var release = service.compile(Configuration.of("--release", "11"), Map.of("C", "class C {}"));
+      assertEquals(0, release.getExitCode(), release::toString);
+      assertEquals(0, service.getInvalidations());
+    } finally {
+      Bartholdy.treeDelete(temp);
+    }
+  }
+
+  @Test
+  void modifiedClassDirectoryOnClassPathIsReadAgain() throws Exception {
+    var temp = Files.createTempDirectory("bartholdy-compiler-service-");
+    var user = Map.of("a.A", "package a; class A { int i = new b.B().version(); }");
+    try (var service = new CompilerService()) {
+      var classes = Files.createDirectories(temp.resolve("classes/b"));
+      var compiled =
+          new Javac().compile(Configuration.of(), Map.of("b.B", "package b; public class B {}"));
+      Files.write(classes.resolve("B.class"), compiled.getBytecode("b.B").orElseThrow());
+      service.setClassPath(List.of(temp.resolve("classes")));
+      assertEquals(1, service.compile(Configuration.of(), user).getExitCode());
+
+      var source = "package b; public class B { public int version() { return 2; } }";
+      compiled = new Javac().compile(Configuration.of(), Map.of("b.B", source));
+      Files.write(classes.resolve("B.class"), compiled.getBytecode("b.B").orElseThrow());
+      Files.setLastModifiedTime(
+          classes.resolve("B.class"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+      var compilation = service.compile(Configuration.of(), user);
+      assertEquals(0, compilation.getExitCode(), compilation::toString);
+      // class directories are not cached by the file manager
+      assertEquals(0, service.getInvalidations());
+    } finally {
+      Bartholdy.treeDelete(temp);
+    }
+  }
+
+  @Test
+  void modifiedArchiveOnClassPathInvalidatesCaches() throws Exception {
+    var temp = Files.createTempDirectory("bartholdy-compiler-service-");
+    var jar = temp.resolve("b.jar");
+    var user = Map.of("a.A", "package a; class A { int i = new b.B().version(); }");
+    try (var service = new CompilerService()) {
+      jar(jar, "package b; public class B {}");
+      service.setClassPath(List.of(jar));
+      assertEquals(1, service.compile(Configuration.of(), user).getExitCode());
+
+      jar(jar, "package b; public class B { public int version() { return 2; } }");
+      Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+      var compilation = service.compile(Configuration.of(), user);
+      assertEquals(0, compilation.getExitCode(), compilation::toString);
+      assertEquals(1, service.getInvalidations());
+
+      service.setClassPath(List.of(jar));
+      assertEquals(1, service.getInvalidations(), "same class path must not invalidate");
+      service.setClassPath(List.of());
+      assertEquals(2, service.getInvalidations());
+    } finally {
+      Bartholdy.treeDelete(temp);
+    }
+  }
+
+  private static void jar(Path jar, String source) throws Exception {
+    var compilation = new Javac().compile(Configuration.of(), Map.of("b.B", source));
+    assertEquals(0, compilation.getExitCode(), compilation::toString);
+    try (var stream = new JarOutputStream(Files.newOutputStream(jar))) {
+      stream.putNextEntry(new JarEntry("b/B.class"));
+      stream.write(compilation.getBytecode("b.B").orElseThrow());
+      stream.closeEntry();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package de.sormuras.bartholdy.jdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.Configuration;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class JavacTests {
+
+  @Test
+  void compileSourcesFromMemory() throws Exception {
+    var sources =
+        Map.of(
+            "a.A",
+                "package a; public class A { public String b() { return new b.B().toString(); } }",
+            "b.B",
+                "package b; public class B { class Inner {} public String toString() { return \"B\"; } }");
+    var compilation = new Javac().compile(Configuration.of(), sources);
+    assertEquals(0, compilation.getExitCode(), compilation::toString);
+    assertEquals("", compilation.getOutput("err"));
+    assertEquals(Set.of("a.A", "b.B", "b.B$Inner"), compilation.getClasses().keySet());
+    var loader = new MemoryClassLoader(compilation);
+    var a = loader.loadClass("a.A");
+    assertEquals("B", a.getMethod("b").invoke(a.getConstructor().newInstance()));
+  }
+
+  @Test
+  void compileSourceFilesFromPath() throws Exception {
+    var directory = Files.createTempDirectory("bartholdy-javac-");
+    var source = Files.write(directory.resolve("C.java"), List.of("class C {}"));
+    try {
+      var compilation = new Javac().compile(Configuration.of("--release", "9"), List.of(source));
+      assertEquals(0, compilation.getExitCode(), compilation::toString);
+      var bytes = compilation.getBytecode("C").orElseThrow();
+      assertEquals(
+          0xCAFEBABE,
+          (bytes[0] & 0xFF) << 24
+              | (bytes[1] & 0xFF) << 16
+              | (bytes[2] & 0xFF) << 8
+              | (bytes[3] & 0xFF));
+      assertEquals(53, bytes[7]);
+      try (var stream = Files.list(directory)) {
+        assertEquals(1, stream.count(), "no class file written to disk");
+      }
+    } finally {
+      Files.delete(source);
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void compileErrorsAreReported() {
+    var compilation =
+        new Javac().compile(Configuration.of(), Map.of("E", "class E { int i = \"\"; }"));
+    assertEquals(1, compilation.getExitCode());
+    assertTrue(compilation.getOutput("err").contains("incompatible types"), compilation::toString);
+    assertTrue(compilation.getClasses().isEmpty());
+  }
+
+  @Test
+  void invalidOptionsAreReported() {
+    var compilation = new Javac().compile(Configuration.of("--invalid"), Map.of("E", "class E {}"));
+    assertEquals(2, compilation.getExitCode());
+    assertTrue(compilation.getOutput("err").contains("--invalid"), compilation::toString);
+  }
+
+  @Test
+  void classesCannotBeModifiedByCallers() {
+    var compilation = new Javac().compile(Configuration.of(), Map.of("A", "class A {}"));
+    assertEquals(0, compilation.getExitCode(), compilation::toString);
+    var classes = compilation.getClasses();
+    assertThrows(UnsupportedOperationException.class, () -> classes.remove("A"));
+    Arrays.fill(classes.get("A"), (byte) 0);
+    assertEquals(0xCAFEBABE, ByteBuffer.wrap(compilation.getClasses().get("A")).getInt());
+    assertEquals(0xCAFEBABE, ByteBuffer.wrap(compilation.getBytecode("A").orElseThrow()).getInt());
+  }
+
+  @Test
+  void outputIsLimitedByConfiguration() {
+    var configuration = Configuration.builder().setArguments("--help").setOutputLimit(100).build();
+    var result = new Javac().run(configuration);
+    assertEquals(0, result.getExitCode(), result::toString);
+    var size = result.getOutputLines("out").stream().mapToInt(String::length).sum();
+    assertTrue(size > 0, result::toString);
+    assertTrue(size <= 100, result::toString);
+  }
+
+  static class MemoryClassLoader extends ClassLoader {
+
+    private final Compilation compilation;
+
+    MemoryClassLoader(Compilation compilation) {
+      super(MemoryClassLoader.class.getClassLoader());
+      this.compilation = compilation;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      var bytes = compilation.getBytecode(name).orElseThrow(() -> new ClassNotFoundException(name));
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
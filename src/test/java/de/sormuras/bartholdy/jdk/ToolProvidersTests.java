@@ -0,0 +1,34 @@
+package de.sormuras.bartholdy.jdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class ToolProvidersTests {
+
+  @Test
+  void registryIsSharedPerLayer() {
+    assertSame(ToolProviders.of(ModuleLayer.boot()), ToolProviders.of(Javac.class));
+  }
+
+  @Test
+  void instancesAreCachedPerThread() {
+    var registry = ToolProviders.of(ModuleLayer.boot());
+    var javap = registry.get("javap");
+    assertEquals("javap", javap.name());
+    assertSame(javap, registry.get("javap"));
+    assertNotSame(javap, CompletableFuture.supplyAsync(() -> registry.get("javap")).join());
+  }
+
+  @Test
+  void unknownToolProviderThrows() {
+    var registry = ToolProviders.of(ModuleLayer.boot());
+    var e = assertThrows(NoSuchElementException.class, () -> registry.get("does-not-exist"));
+    assertEquals("tool provider not found: does-not-exist", e.getMessage());
+  }
+}
@@ -0,0 +1,47 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class ClassFileTests {
+
+  @Test
+  void parseSignatures() {
+    assertEquals(Set.of(), parse("(IJ[Z)V"));
+    assertEquals(
+        Set.of("java/lang/String", "java/util/List"),
+        parse("([Ljava/lang/String;)Ljava/util/List;"));
+    assertEquals(
+        Set.of("java/lang/Comparable", "java/lang/Object", "java/util/Map", "java/util/Map$Entry"),
+        parse(
+            "<K::Ljava/lang/Comparable<-TK;>;V:Ljava/lang/Object;>Ljava/util/Map<TK;TV;>.Entry<TK;*>;"));
+    assertEquals(
+        Set.of("java/lang/Exception", "java/util/function/Supplier"),
+        parse("<X:Ljava/lang/Exception;>(Ljava/util/function/Supplier<+TX;>;)V^TX;"));
+  }
+
+  @Test
+  void readOwnClassFile() throws Exception {
+    var name = ClassFileTests.class.getName().replace('.', '/');
+    try (var stream = ClassFileTests.class.getResourceAsStream("/" + name + ".class")) {
+      var file = ClassFile.read(stream);
+      assertEquals(name, file.getName());
+      assertEquals("java/lang/Object", file.getSuperName().orElseThrow());
+      var types = file.getReferencedTypes();
+      assertTrue(types.contains(name));
+      assertTrue(types.contains("org/junit/jupiter/api/Test"), types::toString);
+      assertTrue(types.contains("java/util/TreeSet"), types::toString);
+      assertTrue(types.contains("java/io/InputStream"), types::toString);
+    }
+  }
+
+  private static Set<String> parse(String signature) {
+    var types = new TreeSet<String>();
+    ClassFile.parseSignature(signature, types);
+    return types;
+  }
+}
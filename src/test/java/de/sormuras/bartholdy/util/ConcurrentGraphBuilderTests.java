@@ -0,0 +1,63 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentGraphBuilderTests {
+
+  @Test
+  void empty() {
+    var graph = new ConcurrentGraphBuilder().freeze();
+    assertEquals(List.of(), graph.getNodes());
+    assertEquals(0, graph.getEdgeCount());
+  }
+
+  @Test
+  void freezeMatchesSequentiallyBuiltGraph() {
+    var graph = new ConcurrentGraphBuilder().addEdge("B", "C").addEdge("A", "C").addEdge("A", "B");
+    graph.addEdge("C", "A").addEdge("A", "B").addNode("D");
+    var frozen = graph.freeze();
+    var expected = DirectedGraph.builder();
+    expected.addEdge("A", "B").addEdge("A", "C").addEdge("B", "C").addEdge("C", "A").addNode("D");
+    assertGraphEquals(expected.build(), frozen);
+    assertEquals(List.of(List.of("A", "B", "C")), frozen.findCycles());
+  }
+
+  @Test
+  void manyProducersAddEdgesConcurrently() throws Exception {
+    var builder = new ConcurrentGraphBuilder();
+    var expected = DirectedGraph.builder();
+    var threads = 8;
+    var edgesPerThread = 20_000;
+    var executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      var seed = t;
+      executor.execute(
+          () -> {
+            for (int i = 0; i < edgesPerThread; i++) {
+              var source = (i * 31 + seed) % 1000;
+              builder.addEdge("N" + source, "N" + (source * 7 + i) % 1000);
+            }
+          });
+      for (int i = 0; i < edgesPerThread; i++) {
+        var source = (i * 31 + seed) % 1000;
+        expected.addEdge("N" + source, "N" + (source * 7 + i) % 1000);
+      }
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    assertGraphEquals(expected.build(), builder.freeze());
+  }
+
+  private static void assertGraphEquals(DirectedGraph expected, DirectedGraph actual) {
+    assertEquals(expected.getNodes(), actual.getNodes());
+    assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+    for (var node : expected.getNodes()) {
+      assertEquals(expected.getSuccessors(node), actual.getSuccessors(node), node);
+    }
+  }
+}
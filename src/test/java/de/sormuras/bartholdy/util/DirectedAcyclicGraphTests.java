@@ -1,10 +1,15 @@
 package de.sormuras.bartholdy.util;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
@@ -43,8 +48,7 @@ class DirectedAcyclicGraphTests {
             List.of("AB", "AF", "CD", "DE", "CE", "BD", "FD", "BC", "ED"),
             List.of("AB", "AF", "CD", "DE", "CE", "BD", "FD", "BC", "EA"));
 
-    return samples
-        .stream()
+    return samples.stream()
         .map(
             list ->
                 dynamicTest(
@@ -78,6 +82,95 @@ class DirectedAcyclicGraphTests {
     assertThrows(CycleDetectedException.class, () -> graph.addEdge("B", "D"));
   }
 
+  @Test
+  void denseGraphIsBuiltInBoundedTime() {
+    var graph = new DirectedAcyclicGraph();
+    var nodes = 200;
+    for (int i = 0; i < nodes; i++) {
+      graph.addNode("N" + i);
+    }
+    // add all forward edges, each insertion walks the dense region reachable from the target
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(10),
+        () -> {
+          for (int i = 0; i < nodes; i++) {
+            for (int j = i + 1; j < nodes; j++) {
+              graph.addEdge("N" + i, "N" + j);
+            }
+          }
+        });
+    assertThrows(CycleDetectedException.class, () -> graph.addEdge("N" + (nodes - 1), "N0"));
+  }
+
+  @Test
+  void longCyclicPathDoesNotOverflowTheStack() {
+    var graph = new DirectedAcyclicGraph();
+    var nodes = 100_000;
+    for (int i = 1; i < nodes; i++) {
+      graph.addEdge("N" + (i - 1), "N" + i);
+    }
+    var e =
+        assertThrows(CycleDetectedException.class, () -> graph.addEdge("N" + (nodes - 1), "N0"));
+    assertTrue(e.getMessage().contains("From N99999 over [N0, N1, N2, "));
+    assertTrue(e.getMessage().endsWith(", N99997] and N99998 back to N99999"));
+  }
+
+  @Test
+  void topologicalOrder() {
+    var graph = buildGraph(List.of("CD", "AB", "BC"));
+    assertEquals(List.of("A", "B", "C", "D"), graph.getTopologicalOrder());
+    graph.addNode("E");
+    graph.addEdge("D", "E");
+    graph.addEdge("E", "F");
+    assertEquals(List.of("A", "B", "C", "D", "E", "F"), graph.getTopologicalOrder());
+    assertThrows(CycleDetectedException.class, () -> graph.addEdge("F", "B"));
+    assertEquals(List.of("A", "B", "C", "D", "E", "F"), graph.getTopologicalOrder());
+  }
+
+  @Test
+  void randomEdgesAreRejectedExactlyWhenTheyCloseACycle() {
+    var random = new Random(123);
+    var size = 60;
+    var graph = new DirectedAcyclicGraph();
+    var reaches = new boolean[size][size]; // reference transitive closure
+    for (int n = 0; n < 2000; n++) {
+      var source = random.nextInt(size);
+      var target = random.nextInt(size);
+      if (source == target) {
+        continue;
+      }
+      if (reaches[target][source]) {
+        var s = source;
+        assertThrows(CycleDetectedException.class, () -> graph.addEdge("N" + s, "N" + target));
+        continue;
+      }
+      graph.addEdge("N" + source, "N" + target);
+      for (int i = 0; i < size; i++) {
+        if (i == source || reaches[i][source]) {
+          reaches[i][target] = true;
+          for (int j = 0; j < size; j++) {
+            reaches[i][j] |= reaches[target][j];
+          }
+        }
+      }
+      var order = graph.getTopologicalOrder();
+      for (var node : order) {
+        for (var successor : graph.getSuccessors(node)) {
+          assertTrue(order.indexOf(node) < order.indexOf(successor), node + " -> " + successor);
+        }
+      }
+    }
+  }
+
+  @Test
+  void toDirectedGraph() {
+    var graph = buildGraph(List.of("AB", "BC", "DC")).toDirectedGraph();
+    assertEquals(List.of("A", "B", "C", "D"), graph.getNodes());
+    assertEquals(List.of("B"), graph.getSuccessors("A"));
+    assertEquals(3, graph.getEdgeCount());
+    assertEquals(List.of(), graph.findCycles());
+  }
+
   DirectedAcyclicGraph buildGraph(List<String> edges) {
     var graph = new DirectedAcyclicGraph();
     for (var edge : edges) {
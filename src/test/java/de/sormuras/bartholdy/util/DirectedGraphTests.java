@@ -0,0 +1,88 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class DirectedGraphTests {
+
+  @Test
+  void empty() {
+    var graph = DirectedGraph.builder().build();
+    assertEquals(List.of(), graph.getNodes());
+    assertEquals(0, graph.getEdgeCount());
+    assertEquals(List.of(), graph.findStronglyConnectedComponents());
+    assertEquals(List.of(), graph.findCycles());
+  }
+
+  @Test
+  void successors() {
+    var graph = DirectedGraph.of(Map.of("A", List.of("C", "B", "C"), "D", List.of()));
+    assertEquals(List.of("A", "B", "C", "D"), graph.getNodes());
+    assertEquals(List.of("B", "C"), graph.getSuccessors("A"));
+    assertEquals(List.of(), graph.getSuccessors("B"));
+    assertEquals(2, graph.getEdgeCount());
+    assertThrows(IllegalArgumentException.class, () -> graph.getSuccessors("X"));
+  }
+
+  @Test
+  void componentsAreListedInReverseTopologicalOrder() {
+    var graph = build("AB", "BC", "CB", "CD");
+    assertEquals(
+        List.of(List.of("D"), List.of("B", "C"), List.of("A")),
+        graph.findStronglyConnectedComponents());
+  }
+
+  @Test
+  void cycles() {
+    assertEquals(List.of(), build("AB", "BC", "AC").findCycles());
+    assertEquals(List.of(List.of("A")), build("AA", "AB").findCycles());
+    assertEquals(List.of(List.of("A", "B")), build("AB", "BA").findCycles());
+    assertEquals(
+        List.of(List.of("A", "B", "C"), List.of("D", "E")),
+        build("AB", "BC", "CA", "CD", "DE", "ED").findCycles());
+    assertEquals(
+        List.of(List.of("A", "B", "C", "D", "E", "F")),
+        build("AB", "AF", "CD", "DE", "CE", "BD", "FD", "BC", "EA").findCycles());
+  }
+
+  @Test
+  void longCycleDoesNotOverflowTheStack() {
+    var builder = DirectedGraph.builder();
+    var nodes = 100_000;
+    for (int i = 0; i < nodes; i++) {
+      builder.addEdge("N" + i, "N" + ((i + 1) % nodes));
+    }
+    var cycles = builder.build().findCycles();
+    assertEquals(1, cycles.size());
+    assertEquals(nodes, cycles.get(0).size());
+  }
+
+  @Test
+  void manyDepthFirstRootsTakeLinearTime() {
+    var builder = DirectedGraph.builder();
+    var nodes = 320_000;
+    builder.addNode(String.format("N%06d", 0));
+    // each node only reaches nodes sorted before it, so each one starts a new depth-first search
+    for (int i = 1; i < nodes; i++) {
+      builder.addEdge(String.format("N%06d", i), String.format("N%06d", i - 1));
+    }
+    var graph = builder.build();
+    var components =
+        assertTimeoutPreemptively(Duration.ofSeconds(10), graph::findStronglyConnectedComponents);
+    assertEquals(nodes, components.size());
+  }
+
+  private static DirectedGraph build(String... edges) {
+    var builder = DirectedGraph.builder();
+    for (var edge : edges) {
+      builder.addEdge("" + edge.charAt(0), "" + edge.charAt(1));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,177 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DownloaderTests {
+
+  private final byte[] bytes = new byte[100_000];
+  private final List<String> ranges = new CopyOnWriteArrayList<>();
+  private final AtomicInteger failures = new AtomicInteger();
+  private final List<String> upgrades = new CopyOnWriteArrayList<>();
+  private boolean acceptRanges = true;
+  private volatile String etag = "\"42\"";
+  /** Validator sent by the next HEAD response instead of the current one, like a stale cache. */
+  private volatile String staleEtag;
+
+  private HttpServer server;
+
+  @BeforeEach
+  void start() throws IOException {
+    new Random(42).nextBytes(bytes);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/file.bin", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  void stop() {
+    server.stop(0);
+  }
+
+  /** Serve the bytes, honoring single range requests and failing on demand. */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      var upgrade = exchange.getRequestHeaders().getFirst("Upgrade");
+      if (upgrade != null) {
+        upgrades.add(upgrade);
+      }
+      var headers = exchange.getResponseHeaders();
+      headers.set("ETag", etag);
+      if (acceptRanges) {
+        headers.set("Accept-Ranges", "bytes");
+      }
+      if (exchange.getRequestMethod().equals("HEAD")) {
+        if (staleEtag != null) {
+          headers.set("ETag", staleEtag);
+          staleEtag = null;
+        }
+        headers.set("Content-Length", "" + bytes.length);
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      var range = exchange.getRequestHeaders().getFirst("Range");
+      var start = 0;
+      var end = bytes.length;
+      var status = 200;
+      var ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+      if (acceptRanges && range != null && (ifRange == null || ifRange.equals(etag))) {
+        ranges.add(range);
+        var bounds = range.substring("bytes=".length()).split("-");
+        start = Integer.parseInt(bounds[0]);
+        end = Integer.parseInt(bounds[1]) + 1;
+        status = 206;
+      }
+      exchange.sendResponseHeaders(status, end - start);
+      if (failures.getAndDecrement() > 0) {
+        // send half of the bytes and break the connection
+        exchange.getResponseBody().write(bytes, start, (end - start) / 2);
+        exchange.getResponseBody().flush();
+        throw new IOException("connection broken on purpose");
+      }
+      exchange.getResponseBody().write(bytes, start, end - start);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private URI uri() {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + "/file.bin");
+  }
+
+  @Test
+  void segmentedDownload(@TempDir Path temp) throws Exception {
+    var target = temp.resolve("file.bin");
+    var downloader = new Downloader().setSegments(4).setMinimumSegmentSize(10_000);
+    assertEquals(target, downloader.download(uri(), target, sha256(bytes)));
+    assertArrayEquals(bytes, Files.readAllBytes(target));
+    assertEquals(
+        List.of("bytes=0-24999", "bytes=25000-49999", "bytes=50000-74999", "bytes=75000-99999"),
+        ranges.stream().sorted().collect(Collectors.toList()));
+    assertEquals(List.of(target), Files.list(temp).collect(Collectors.toList()));
+    // segments use separate HTTP/1.1 connections, no request tries to upgrade to HTTP/2
+    assertEquals(List.of(), upgrades);
+  }
+
+  @Test
+  void interruptedDownloadIsResumed(@TempDir Path temp) throws Exception {
+    var target = temp.resolve("file.bin");
+    var downloader = new Downloader().setSegments(1);
+    failures.set(1);
+    assertThrows(IOException.class, () -> downloader.download(uri(), target, null));
+    assertFalse(Files.exists(target));
+    assertEquals(50_000, Files.size(temp.resolve("file.bin.part-0")));
+
+    downloader.download(uri(), target, null);
+    assertArrayEquals(bytes, Files.readAllBytes(target));
+    assertEquals(List.of("bytes=0-99999", "bytes=50000-99999"), ranges);
+    assertEquals(List.of(target), Files.list(temp).collect(Collectors.toList()));
+  }
+
+  @Test
+  void resumingChangedFileStartsOver(@TempDir Path temp) throws Exception {
+    var target = temp.resolve("file.bin");
+    var downloader = new Downloader().setSegments(1);
+    failures.set(1);
+    assertThrows(IOException.class, () -> downloader.download(uri(), target, null));
+    assertEquals(50_000, Files.size(temp.resolve("file.bin.part-0")));
+
+    var changed = new byte[bytes.length];
+    new Random(7).nextBytes(changed);
+    System.arraycopy(changed, 0, bytes, 0, bytes.length);
+    staleEtag = etag;
+    etag = "\"43\"";
+    downloader.download(uri(), target, null);
+    assertArrayEquals(changed, Files.readAllBytes(target));
+    assertEquals(List.of("bytes=0-99999", "bytes=0-99999"), ranges);
+    assertEquals(List.of(target), Files.list(temp).collect(Collectors.toList()));
+  }
+
+  @Test
+  void downloadWithoutRangeSupport(@TempDir Path temp) throws Exception {
+    acceptRanges = false;
+    var target = temp.resolve("file.bin");
+    new Downloader().setMinimumSegmentSize(1).download(uri(), target, null);
+    assertArrayEquals(bytes, Files.readAllBytes(target));
+    assertTrue(ranges.isEmpty());
+  }
+
+  @Test
+  void checksumMismatchLeavesNoFileBehind(@TempDir Path temp) throws Exception {
+    var target = temp.resolve("file.bin");
+    var e = assertThrows(IOException.class, () -> new Downloader().download(uri(), target, "00"));
+    assertTrue(e.getMessage().startsWith("checksum mismatch for " + uri()), e.getMessage());
+    assertEquals(List.of(), Files.list(temp).collect(Collectors.toList()));
+  }
+
+  private static String sha256(byte[] bytes) throws Exception {
+    var digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+    var builder = new StringBuilder();
+    for (var b : digest) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,64 @@
+package de.sormuras.bartholdy.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class LineBufferTests {
+
+  @Test
+  void empty() {
+    var lines = LineBuffer.of("", UTF_8).getLines();
+    assertEquals(List.of(), lines);
+    assertThrows(IndexOutOfBoundsException.class, () -> lines.get(0));
+  }
+
+  @Test
+  void terminatorsSplitAcrossWrites() {
+    var buffer = new LineBuffer(Long.MAX_VALUE, UTF_8);
+    for (var b : "1\r\n2\r\r\n3\n\n4".getBytes(UTF_8)) {
+      buffer.write(b);
+    }
+    assertEquals(List.of("1", "2", ""), buffer.getLines().subList(0, 3));
+    buffer.close();
+    assertEquals(List.of("1", "2", "", "3", "", "4"), buffer.getLines());
+  }
+
+  @Test
+  void snapshotIsNotAffectedByLaterWrites() {
+    var buffer = new LineBuffer(Long.MAX_VALUE, UTF_8);
+    buffer.write("a\nb".getBytes(UTF_8), 0, 3);
+    var snapshot = buffer.getLines();
+    var bytes = "x".repeat(1000).getBytes(UTF_8);
+    buffer.write(bytes, 0, bytes.length);
+    buffer.close();
+    assertEquals(List.of("a"), snapshot);
+    assertEquals(2, buffer.getLines().size());
+    assertEquals(1001, buffer.getLines().get(1).length());
+  }
+
+  @Test
+  void limitExceeded() {
+    var buffer = new LineBuffer(7, UTF_8);
+    var bytes = "123\n45\n6789\n0\n".getBytes(UTF_8);
+    buffer.write(bytes, 0, bytes.length);
+    buffer.close();
+    assertEquals(List.of("123", "45"), buffer.getLines());
+    assertTrue(buffer.isTruncated());
+  }
+
+  @Test
+  void sequencesDecodeMultiByteCharacters() {
+    var lines = LineBuffer.of("\u00e4\u00f6\u00fc\n\u20ac", UTF_8).getLines();
+    assertEquals(List.of("\u00e4\u00f6\u00fc", "\u20ac"), lines);
+    var sequences = lines.sequences().map(CharSequence::toString).collect(Collectors.toList());
+    assertEquals(lines, sequences);
+    assertFalse(LineBuffer.of("x", UTF_8).isTruncated());
+  }
+}
@@ -0,0 +1,35 @@
+package de.sormuras.bartholdy.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedLinesTests {
+
+  @Test
+  void linesSpanningSegments(@TempDir Path temp) throws Exception {
+    var file = Files.writeString(temp.resolve("lines.txt"), "alpha\r\nbeta\n\ngamma\u20ac");
+    var size = Files.size(file);
+    // segments of 4 bytes, every line is reached by scanning from the first mark
+    var lines = new MappedLines(file, size, new long[] {0}, 4, UTF_8, 2, null);
+    assertEquals(List.of("alpha", "beta", "", "gamma\u20ac"), lines);
+    var sequences = lines.sequences().map(CharSequence::toString).collect(Collectors.toList());
+    assertEquals(lines, sequences);
+    assertThrows(IndexOutOfBoundsException.class, () -> lines.get(4));
+  }
+
+  @Test
+  void emptyFile(@TempDir Path temp) throws Exception {
+    var file = Files.createFile(temp.resolve("empty.txt"));
+    var lines = new MappedLines(file, 0, new long[] {0}, 0, UTF_8);
+    assertEquals(List.of(), lines);
+    assertEquals(file, lines.getPath());
+  }
+}
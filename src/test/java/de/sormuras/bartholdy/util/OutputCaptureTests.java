@@ -0,0 +1,282 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.Result;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutputCaptureTests {
+
+  @Test
+  void empty() throws Exception {
+    var capture = capture(Long.MAX_VALUE, "");
+    assertEquals(List.of(), capture.getLines());
+    assertFalse(capture.isTruncated());
+  }
+
+  @Test
+  void lineTerminators() throws Exception {
+    var capture = capture(Long.MAX_VALUE, "1\n2\r3\r\n\n4");
+    assertEquals(List.of("1", "2", "3", "", "4"), capture.getLines());
+    assertFalse(capture.isTruncated());
+  }
+
+  @Test
+  void limitExceeded() throws Exception {
+    var capture = capture(7, "123\n45\n6789\n0");
+    assertEquals(List.of("123", "45"), capture.getLines());
+    assertTrue(capture.isTruncated());
+  }
+
+  @Test
+  void spillToFile(@TempDir Path temp) throws Exception {
+    var text = new StringBuilder();
+    var expected = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      var line = i % 7 == 0 ? "" : "line " + i;
+      expected.add(line);
+      text.append(line).append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\n" : "\r");
+    }
+    text.append("last");
+    expected.add("last");
+    var bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8, 100, temp);
+    capture.drain(new ByteArrayInputStream(bytes));
+    var lines = capture.getLines();
+    assertTrue(lines instanceof MappedLines);
+    assertEquals(temp, ((MappedLines) lines).getPath().getParent());
+    assertEquals(bytes.length, Files.size(((MappedLines) lines).getPath()));
+    assertEquals(expected, lines);
+    assertEquals("line 998", lines.get(998));
+    assertFalse(capture.isTruncated());
+  }
+
+  @Test
+  void spillCarriageReturnLineFeedAcrossThreshold(@TempDir Path temp) throws Exception {
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8, 3, temp);
+    capture.drain(new SplitInputStream("1\r", "\n2\r\n3"));
+    assertEquals(List.of("1", "2", "3"), capture.getLines());
+  }
+
+  @Test
+  void spillLimitExceeded(@TempDir Path temp) throws Exception {
+    var capture = new OutputCapture(11, StandardCharsets.UTF_8, 4, temp);
+    capture.drain(new SplitInputStream("123\n", "45\n6789", "\n0\n"));
+    var lines = capture.getLines();
+    assertEquals(List.of("123", "45"), lines);
+    assertEquals(7, Files.size(((MappedLines) lines).getPath()));
+    assertTrue(capture.isTruncated());
+  }
+
+  @Test
+  void spillWithDefaultConfigurationExceedsHeapLimit(@TempDir Path temp) throws Exception {
+    var configuration = Configuration.builder().setTemporaryDirectory(temp).build();
+    var capture =
+        new OutputCapture(
+            configuration.getOutputLimit(),
+            StandardCharsets.UTF_8,
+            configuration.getOutputSpillThreshold(),
+            configuration.getOutputSpillLimit(),
+            configuration.getTemporaryDirectory());
+    var line = new byte[1024 * 1024];
+    Arrays.fill(line, (byte) 'x');
+    line[line.length - 1] = '\n';
+    var count = (int) (configuration.getOutputLimit() / line.length) + 6;
+    for (int i = 0; i < count; i++) {
+      capture.write(line, 0, line.length);
+    }
+    capture.close();
+    assertFalse(capture.isTruncated());
+    var lines = (MappedLines) capture.getLines();
+    assertEquals(count, lines.size());
+    assertEquals(line.length - 1, lines.sequence(count - 1).length());
+    var result = Result.builder().setOutput("out", lines).build();
+    result.close();
+    assertTrue(Files.notExists(lines.getPath()));
+    assertThrows(IllegalStateException.class, () -> lines.get(0));
+  }
+
+  @Test
+  void spillFileIsDeletedWhenLinesAreClosed(@TempDir Path temp) throws Exception {
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8, 2, temp);
+    capture.drain(new ByteArrayInputStream("1\n2\n3\n".getBytes(StandardCharsets.UTF_8)));
+    var first = (MappedLines) capture.getLines();
+    var second = (MappedLines) capture.getLines();
+    assertEquals(List.of("1", "2", "3"), second);
+    assertTrue(Files.exists(first.getPath()));
+    first.close();
+    assertTrue(Files.notExists(first.getPath()));
+    assertEquals(List.of(), files(temp));
+  }
+
+  private static List<Path> files(Path directory) throws IOException {
+    try (var stream = Files.list(directory)) {
+      return stream.collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void subscriberReceivesLinesWithBackpressure() throws Exception {
+    var received = new LinkedBlockingQueue<String>();
+    var subscriptions = new LinkedBlockingQueue<Flow.Subscription>();
+    var subscriber =
+        new Flow.Subscriber<String>() {
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            subscriptions.add(subscription);
+          }
+
+          @Override
+          public void onNext(String line) {
+            received.add(line);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {}
+
+          @Override
+          public void onComplete() {
+            received.add("<complete>");
+          }
+        };
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8);
+    capture.setSubscriber(subscriber).setRetained(false);
+    var lines = Flow.defaultBufferSize() * 2;
+    var writer = new Thread(() -> write(capture, lines));
+    writer.start();
+    var subscription = subscriptions.take();
+    // nothing requested: the writer is blocked as soon as the buffer is full
+    writer.join(200);
+    assertTrue(writer.isAlive());
+    assertTrue(received.isEmpty());
+    subscription.request(Long.MAX_VALUE);
+    writer.join();
+    for (int i = 0; i < lines; i++) {
+      assertEquals("line " + i, received.take());
+    }
+    assertEquals("<complete>", received.take());
+    assertEquals(List.of(), capture.getLines());
+  }
+
+  @Test
+  void drainAvailableDoesNotReadWhileSubscriberLagsBehind() throws Exception {
+    var subscriptions = new LinkedBlockingQueue<Flow.Subscription>();
+    var received = new LinkedBlockingQueue<String>();
+    var subscriber =
+        new Flow.Subscriber<String>() {
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            subscriptions.add(subscription);
+          }
+
+          @Override
+          public void onNext(String line) {
+            received.add(line);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {}
+
+          @Override
+          public void onComplete() {}
+        };
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8);
+    capture.setSubscriber(subscriber);
+    var subscription = subscriptions.take();
+    var bytes = new byte[8192];
+    var stream = new ByteArrayInputStream("next\n".getBytes(StandardCharsets.UTF_8));
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(9),
+        () -> {
+          for (int i = 0; i < Flow.defaultBufferSize(); i++) {
+            capture.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+          }
+          assertEquals(0, capture.drainAvailable(stream, bytes));
+          assertEquals(5, stream.available());
+          subscription.request(Long.MAX_VALUE);
+          while (received.size() < Flow.defaultBufferSize()) {
+            Thread.sleep(10);
+          }
+          assertEquals(5, capture.drainAvailable(stream, bytes));
+          assertEquals(0, capture.drainAvailable(stream, bytes));
+        });
+    capture.close();
+    assertEquals("next", capture.getLines().get(Flow.defaultBufferSize()));
+  }
+
+  private static void write(OutputCapture capture, int lines) {
+    try (capture) {
+      for (int i = 0; i < lines; i++) {
+        capture.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Test
+  void terminatorRunsOnceOnFirstMatchingLine() throws Exception {
+    var terminations = new AtomicInteger();
+    var capture = new OutputCapture(Long.MAX_VALUE, StandardCharsets.UTF_8);
+    capture.setTerminator(line -> line.startsWith("error"), terminations::incrementAndGet);
+    capture.drain(new SplitInputStream("ok\nerr", "or: 1\nerror: 2\n"));
+    assertEquals(1, terminations.get());
+    assertEquals(List.of("ok", "error: 1", "error: 2"), capture.getLines());
+  }
+
+  /** Returns each chunk by a separate read call. */
+  private static class SplitInputStream extends InputStream {
+
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+
+    SplitInputStream(String... chunks) {
+      for (var chunk : chunks) {
+        this.chunks.add(chunk.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (chunks.isEmpty()) {
+        return -1;
+      }
+      var chunk = chunks.removeFirst();
+      System.arraycopy(chunk, 0, b, off, chunk.length);
+      return chunk.length;
+    }
+  }
+
+  private static OutputCapture capture(long limit, String text) throws Exception {
+    var capture = new OutputCapture(limit, StandardCharsets.UTF_8);
+    capture.drain(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    return capture;
+  }
+}
@@ -0,0 +1,75 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class ReachabilityIndexTests {
+
+  @Test
+  void acyclic() {
+    var graph = new DirectedAcyclicGraph();
+    graph.addEdge("A", "B");
+    graph.addEdge("B", "C");
+    graph.addEdge("D", "C");
+    graph.addNode("E");
+    var index = ReachabilityIndex.of(graph);
+    assertTrue(index.reaches("A", "B"));
+    assertTrue(index.reaches("A", "C"));
+    assertFalse(index.reaches("C", "A"));
+    assertFalse(index.reaches("A", "A"));
+    assertFalse(index.reaches("A", "D"));
+    assertEquals(Set.of("B", "C"), index.getReachable("A"));
+    assertEquals(Set.of(), index.getReachable("E"));
+    assertThrows(IllegalArgumentException.class, () -> index.reaches("A", "X"));
+  }
+
+  @Test
+  void cyclic() {
+    var graph = DirectedGraph.builder();
+    graph.addEdge("A", "B").addEdge("B", "C").addEdge("C", "B").addEdge("C", "D");
+    graph.addEdge("E", "E");
+    var index = ReachabilityIndex.of(graph.build());
+    assertFalse(index.reaches("A", "A"));
+    assertTrue(index.reaches("B", "B"));
+    assertTrue(index.reaches("C", "B"));
+    assertTrue(index.reaches("A", "D"));
+    assertFalse(index.reaches("D", "B"));
+    assertTrue(index.reaches("E", "E"));
+    assertEquals(Set.of("B", "C", "D"), index.getReachable("A"));
+    assertEquals(Set.of("B", "C", "D"), index.getReachable("B"));
+  }
+
+  @Test
+  void matchesBreadthFirstSearchOnRandomGraph() {
+    var random = new Random(42);
+    var size = 80;
+    var builder = DirectedGraph.builder();
+    for (int i = 0; i < 200; i++) {
+      builder.addEdge("N" + random.nextInt(size), "N" + random.nextInt(size));
+    }
+    var graph = builder.build();
+    var index = ReachabilityIndex.of(graph);
+    for (var source : graph.getNodes()) {
+      var expected = new TreeSet<String>();
+      var queue = new ArrayDeque<>(graph.getSuccessors(source));
+      while (!queue.isEmpty()) {
+        var node = queue.remove();
+        if (expected.add(node)) {
+          queue.addAll(graph.getSuccessors(node));
+        }
+      }
+      assertEquals(expected, index.getReachable(source), source);
+      for (var target : graph.getNodes()) {
+        assertEquals(expected.contains(target), index.reaches(source, target));
+      }
+    }
+  }
+}
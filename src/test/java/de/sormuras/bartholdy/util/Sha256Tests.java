@@ -0,0 +1,28 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class Sha256Tests {
+
+  private static final String ABC =
+      "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+  @Test
+  void hashOfTextBytesAndFileAreEqual(@TempDir Path temp) throws Exception {
+    var file = Files.writeString(temp.resolve("abc.txt"), "abc");
+    assertEquals(ABC, Sha256.hash("abc"));
+    assertEquals(ABC, Sha256.hash(new byte[] {'a', 'b', 'c'}));
+    assertEquals(ABC, Sha256.hash(file));
+  }
+
+  @Test
+  void hexIsLowerCaseAndPadded() {
+    assertEquals("", Sha256.hex(new byte[0]));
+    assertEquals("000fa0ff", Sha256.hex(new byte[] {0, 15, (byte) 160, (byte) 255}));
+  }
+}
@@ -0,0 +1,114 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sormuras.bartholdy.Bartholdy;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SingleFlightTests {
+
+  @Test
+  void concurrentCallersShareOneRun(@TempDir Path temp) throws Exception {
+    var lock = temp.resolve("x.lock");
+    var result = temp.resolve("x");
+    var runs = new AtomicInteger();
+    var calling = new CountDownLatch(8);
+    var release = new CountDownLatch(1);
+    Callable<Path> action =
+        () -> {
+          runs.incrementAndGet();
+          assertTrue(release.await(10, TimeUnit.SECONDS));
+          return result;
+        };
+    var executor = Executors.newFixedThreadPool(8);
+    try {
+      var futures = new ArrayList<Future<Path>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  calling.countDown();
+                  return SingleFlight.run(lock, action);
+                }));
+      }
+      assertTrue(calling.await(10, TimeUnit.SECONDS));
+      Thread.sleep(200);
+      release.countDown();
+      for (var future : futures) {
+        assertSame(result, future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, runs.get());
+    assertTrue(Files.exists(lock));
+  }
+
+  @Test
+  void failureIsPropagatedAndNextCallRunsAgain(@TempDir Path temp) {
+    var lock = temp.resolve("x.lock");
+    var e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                SingleFlight.run(
+                    lock,
+                    () -> {
+                      throw new IllegalStateException("boom");
+                    }));
+    assertEquals("boom", e.getMessage());
+    assertEquals(temp, SingleFlight.run(lock, () -> temp));
+  }
+
+  @Test
+  void lockHeldByAnotherProcessIsWaitedFor(@TempDir Path temp) throws Exception {
+    var lock = temp.resolve("x.lock");
+    var done = temp.resolve("done.txt");
+    var source = temp.resolve("Locker.java");
+    Files.write(
+        source,
+        List.of(
+            "import java.nio.channels.FileChannel;",
+            "import java.nio.file.*;",
+            "public class Locker {",
+            "  public static void main(String... args) throws Exception {",
+            "    try (var channel = FileChannel.open(Path.of(args[0]),"
+                + " StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {",
+            "      channel.lock();",
+            "      System.out.println(\"locked\");",
+            "      Thread.sleep(500);",
+            "      Files.writeString(Path.of(args[1]), \"done\");",
+            "    }",
+            "  }",
+            "}"));
+    var java = Bartholdy.currentJdkHome().resolve("bin").resolve("java");
+    var process =
+        new ProcessBuilder(java.toString(), source.toString(), lock.toString(), done.toString())
+            .redirectErrorStream(true)
+            .start();
+    try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      assertEquals("locked", reader.readLine());
+      var result = SingleFlight.run(lock, () -> Files.exists(done) ? done : temp);
+      assertEquals(done, result);
+      assertEquals(0, process.waitFor());
+    } finally {
+      process.destroyForcibly();
+    }
+  }
+}
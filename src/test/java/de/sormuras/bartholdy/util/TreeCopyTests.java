@@ -0,0 +1,85 @@
+package de.sormuras.bartholdy.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeCopyTests {
+
+  private static Path createTree(Path root) throws Exception {
+    for (var name : new String[] {"a/1.txt", "a/b/2.txt", "a/b/c/3.txt", "4.txt", "skip.bin"}) {
+      var file = root.resolve(name);
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, name);
+    }
+    return root;
+  }
+
+  @Test
+  void copyAgainSkipsUnchangedFiles(@TempDir Path temp) throws Exception {
+    var source = createTree(temp.resolve("source"));
+    var target = temp.resolve("target");
+    var copy = new TreeCopy().setFilter(path -> !path.toString().endsWith(".bin"));
+
+    var summary = copy.copy(source, target);
+    assertEquals("Summary{copied=4, skipped=0, linked=0}", summary.toString());
+    assertEquals("a/b/c/3.txt", Files.readString(target.resolve("a/b/c/3.txt")));
+    assertFalse(Files.exists(target.resolve("skip.bin")));
+
+    summary = copy.copy(source, target);
+    assertEquals(0, summary.getCopied());
+    assertEquals(4, summary.getSkipped());
+
+    var changed = source.resolve("a/b/2.txt");
+    Files.writeString(changed, "changed");
+    Files.setLastModifiedTime(changed, FileTime.fromMillis(123_000));
+    summary = copy.copy(source, target);
+    assertEquals(1, summary.getCopied());
+    assertEquals(3, summary.getSkipped());
+    assertEquals("changed", Files.readString(target.resolve("a/b/2.txt")));
+  }
+
+  @Test
+  void linkingCreatesHardLinks(@TempDir Path temp) throws Exception {
+    var source = createTree(temp.resolve("source"));
+    var target = temp.resolve("target");
+    var copy = new TreeCopy().setLinking(true).setParallelism(2);
+
+    var summary = copy.copy(source, target);
+    assertEquals(0, summary.getCopied());
+    assertEquals(5, summary.getLinked());
+    assertTrue(Files.isSameFile(source.resolve("a/b/c/3.txt"), target.resolve("a/b/c/3.txt")));
+
+    summary = copy.copy(source, target);
+    assertEquals(0, summary.getLinked());
+    assertEquals(5, summary.getSkipped());
+  }
+
+  @Test
+  @DisabledOnOs(OS.WINDOWS)
+  void symbolicLinksAreCopiedAsLinks(@TempDir Path temp) throws Exception {
+    var source = createTree(temp.resolve("source"));
+    Files.createSymbolicLink(source.resolve("a/b/loop"), Path.of(".."));
+    Files.createSymbolicLink(source.resolve("link.txt"), Path.of("4.txt"));
+    var target = temp.resolve("target");
+    var copy = new TreeCopy();
+
+    var summary = copy.copy(source, target);
+    assertEquals(7, summary.getCopied());
+    assertEquals(Path.of(".."), Files.readSymbolicLink(target.resolve("a/b/loop")));
+    assertEquals(Path.of("4.txt"), Files.readSymbolicLink(target.resolve("link.txt")));
+    assertEquals("4.txt", Files.readString(target.resolve("link.txt")));
+
+    summary = copy.copy(source, target);
+    assertEquals(0, summary.getCopied());
+    assertEquals(7, summary.getSkipped());
+  }
+}
@@ -2,6 +2,7 @@ package integration.jdk;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 
@@ -16,8 +17,10 @@ import de.sormuras.bartholdy.jdk.Jlink;
 import de.sormuras.bartholdy.jdk.Jmod;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
 class JdkToolTests {
@@ -51,6 +54,27 @@ class JdkToolTests {
     assertRunReturnsZeroAndIsFast(tool, configuration);
   }
 
+  @Test
+  void outputLinesAreConsumedWhileRunning() {
+    var lines = new CopyOnWriteArrayList<String>();
+    var configuration =
+        Configuration.builder()
+            .setArguments("--help")
+            .setOutputConsumer("out", lines::add)
+            .setOutputRetained(false)
+            .build();
+    var result = new Javac().run(configuration);
+    assertEquals(0, result.getExitCode());
+    assertEquals(List.of(), result.getOutputLines("out"));
+    assertTimeoutPreemptively(Duration.ofSeconds(9), () -> waitFor(lines, "Usage: javac.+"));
+  }
+
+  private static void waitFor(List<String> lines, String regex) throws InterruptedException {
+    while (lines.stream().noneMatch(line -> line.matches(regex))) {
+      Thread.sleep(10);
+    }
+  }
+
   private void assertRunReturnsZeroAndIsFast(Tool tool, Configuration configuration) {
     var result = tool.run(configuration);
     assertEquals(0, result.getExitCode());
@@ -0,0 +1,37 @@
+package integration.jdk;
+
+import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.jdk.Javap;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.spi.ToolProvider;
+
+/** Compare per-call overhead of looking up a tool provider for each run with cached lookups. */
+public class ToolProviderBenchmark {
+
+  public static void main(String... args) {
+    var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    var configuration = Configuration.of("-version");
+    var javap = new Javap();
+    for (int round = 1; round <= 3; round++) {
+      var uncached = measure(iterations, ToolProviderBenchmark::runUncached);
+      var cached = measure(iterations, () -> javap.run(configuration));
+      System.out.printf(
+          "round %d: uncached %6d ns/call, cached %6d ns/call%n", round, uncached, cached);
+    }
+  }
+
+  private static void runUncached() {
+    var provider = ToolProvider.findFirst("javap").orElseThrow();
+    var writer = new PrintWriter(new StringWriter());
+    provider.run(writer, writer, "-version");
+  }
+
+  private static long measure(int iterations, Runnable runnable) {
+    var start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      runnable.run();
+    }
+    return (System.nanoTime() - start) / iterations;
+  }
+}
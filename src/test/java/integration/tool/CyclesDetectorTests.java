@@ -1,11 +1,14 @@
 package integration.tool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertLinesMatch;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import de.sormuras.bartholdy.Configuration;
 import de.sormuras.bartholdy.tool.CyclesDetector;
+import de.sormuras.bartholdy.util.ReachabilityIndex;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.List;
@@ -21,6 +24,7 @@ class CyclesDetectorTests {
     assertEquals(0, result.getExitCode(), () -> "result=" + result);
 
     assertLinesMatch(List.of(), result.getOutputLines("cycles"));
+    assertLinesMatch(List.of(), result.getOutputLines("tangles"));
 
     assertLinesMatch(
         List.of(
@@ -69,6 +73,11 @@ class CyclesDetectorTests {
             "Adding edge 'org.junit.jupiter.engine.extension.ExtensionRegistry -> org.junit.jupiter.engine.Constants' failed. Cycle detected: From org.junit.jupiter.engine.extension over [org.junit.jupiter.engine, org.junit.jupiter.engine.descriptor] and org.junit.jupiter.engine.execution back to org.junit.jupiter.engine.extension"),
         result.getOutputLines("cycles"));
 
+    assertLinesMatch(
+        List.of(
+            "[org.junit.jupiter.engine, org.junit.jupiter.engine.descriptor, org.junit.jupiter.engine.discovery, org.junit.jupiter.engine.execution, org.junit.jupiter.engine.extension]"),
+        result.getOutputLines("tangles"));
+
     assertLinesMatch(
         List.of(
             "org.junit.jupiter.engine -> java.lang",
@@ -84,6 +93,16 @@ class CyclesDetectorTests {
         result.getOutputLines("items"));
   }
 
+  @Test
+  void packageGraphOfJUnitJupiterEngineAnswersReachabilityQueries() {
+    var graph = new CyclesDetector(jar("junit-jupiter-engine-5.3.1")).getPackageGraph();
+    var index = ReachabilityIndex.of(graph);
+    assertTrue(index.reaches("org.junit.jupiter.engine.script", "javax.script"));
+    assertTrue(index.reaches("org.junit.jupiter.engine.execution", "org.junit.jupiter.engine"));
+    assertTrue(index.reaches("org.junit.jupiter.engine", "org.junit.jupiter.engine.execution"));
+    assertFalse(index.reaches("java.lang", "org.junit.jupiter.engine"));
+  }
+
   private static Path jar(String name) {
     try {
       return Path.of(CyclesDetectorTests.class.getResource("/jars/" + name + ".jar").toURI());
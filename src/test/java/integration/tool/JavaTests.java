@@ -1,16 +1,28 @@
 package integration.tool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertLinesMatch;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import de.sormuras.bartholdy.Configuration;
+import de.sormuras.bartholdy.Result;
 import de.sormuras.bartholdy.tool.Java;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 class JavaTests {
@@ -25,6 +37,127 @@ class JavaTests {
     assertTrue(result.getOutput("out").contains(Runtime.version().toString()));
   }
 
+  @Test
+  void versionAsync() {
+    var future = new Java().runAsync(Configuration.of("--version"));
+    var result = future.join();
+    assertEquals(0, result.getExitCode());
+    assertFalse(result.isTimedOut());
+    assertTrue(result.getOutput("out").contains(Runtime.version().toString()));
+  }
+
+  @Test
+  void concurrentRunsShareBoundedDrainerThreads() throws Exception {
+    var program = Files.createTempFile("bartholdy-print-", ".java");
+    Files.write(
+        program,
+        List.of(
+            "class P { public static void main(String... a) throws Exception {",
+            "System.out.println(\"started\"); System.err.println(\"running\");",
+            "Thread.sleep(3_000); System.out.println(\"done\"); } }"));
+    try {
+      var started = new CountDownLatch(6);
+      var futures = new ArrayList<CompletableFuture<Result>>();
+      for (int i = 0; i < 6; i++) {
+        var configuration =
+            Configuration.builder()
+                .setArguments(program.toString())
+                .setTimeout(Duration.ofSeconds(60))
+                .setOutputConsumer("out", line -> started.countDown())
+                .build();
+        futures.add(new Java().runAsync(configuration));
+      }
+      assertTrue(started.await(60, TimeUnit.SECONDS));
+      var drainers =
+          Thread.getAllStackTraces().keySet().stream()
+              .filter(thread -> thread.getName().equals("bartholdy-drainer"))
+              .count();
+      assertTrue(drainers <= Math.max(2, Runtime.getRuntime().availableProcessors()));
+      for (var future : futures) {
+        var result = future.get(60, TimeUnit.SECONDS);
+        assertEquals(0, result.getExitCode(), result::toString);
+        assertEquals(List.of("started", "done"), result.getOutputLines("out"));
+        assertEquals(List.of("running"), result.getOutputLines("err"));
+      }
+    } finally {
+      Files.delete(program);
+    }
+  }
+
+  @Test
+  void timeoutTerminatesProcess() throws Exception {
+    var program = Files.createTempFile("bartholdy-sleep-", ".java");
+    Files.write(
+        program,
+        List.of(
+            "class S { public static void main(String... a) throws Exception {",
+            "Thread.sleep(60_000); } }"));
+    try {
+      var configuration =
+          Configuration.builder().setArguments(program.toString()).setTimeoutMillis(999).build();
+      var result = new Java().run(configuration);
+      assertTrue(result.isTimedOut(), result::toString);
+      assertNotEquals(0, result.getExitCode());
+      assertTrue(result.getDuration().compareTo(Duration.ofSeconds(30)) < 0);
+    } finally {
+      Files.delete(program);
+    }
+  }
+
+  @Test
+  void matchingOutputTerminatesProcessEarly() throws Exception {
+    var program = Files.createTempFile("bartholdy-error-", ".java");
+    Files.write(
+        program,
+        List.of(
+            "class E { public static void main(String... a) throws Exception {",
+            "System.err.println(\"warning: not yet\");",
+            "System.err.println(\"error: doomed\");",
+            "Thread.sleep(60_000); } }"));
+    try {
+      var configuration =
+          Configuration.builder()
+              .setArguments(program.toString())
+              .setTimeoutMillis(60_000)
+              .setTerminationPattern("err", "^error:")
+              .build();
+      var result = new Java().run(configuration);
+      assertTrue(result.isTerminatedEarly(), result::toString);
+      assertFalse(result.isTimedOut());
+      assertNotEquals(0, result.getExitCode());
+      assertEquals(List.of("warning: not yet", "error: doomed"), result.getOutputLines("err"));
+      assertTrue(result.getDuration().compareTo(Duration.ofSeconds(30)) < 0);
+    } finally {
+      Files.delete(program);
+    }
+  }
+
+  @Test
+  void failureAfterStartDestroysProcess() throws Exception {
+    var program = Files.createTempFile("bartholdy-orphan-", ".java");
+    Files.write(
+        program,
+        List.of(
+            "class O { public static void main(String... a) throws Exception {",
+            "Thread.sleep(60_000); } }"));
+    try {
+      var configuration = new FailingSubscribersConfiguration().setArguments(program.toString());
+      var e = assertThrows(IllegalStateException.class, () -> new Java().run(configuration));
+      assertEquals("subscribers not available", e.getMessage());
+      var name = program.getFileName().toString();
+      var children =
+          ProcessHandle.current()
+              .children()
+              .filter(child -> child.info().commandLine().orElse("").contains(name))
+              .collect(Collectors.toList());
+      for (var child : children) {
+        child.onExit().get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      Files.delete(program);
+    }
+  }
+
   @Test
   void runJavaWithLongCommandLine() {
     var configuration = longCommandLineConfigurationBuilder(4000).addArgument("end.").build();
@@ -55,4 +188,11 @@ class JavaTests {
     }
     return builder;
   }
+
+  static class FailingSubscribersConfiguration extends Configuration.Builder {
+    @Override
+    public Map<String, Flow.Subscriber<? super String>> getOutputSubscribers() {
+      throw new IllegalStateException("subscribers not available");
+    }
+  }
 }
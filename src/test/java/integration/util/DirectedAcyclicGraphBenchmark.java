@@ -0,0 +1,54 @@
+package integration.util;
+
+import de.sormuras.bartholdy.util.DirectedAcyclicGraph;
+import java.util.Random;
+
+/** Measure insertion throughput and retained heap of a large acyclic class-level graph. */
+public class DirectedAcyclicGraphBenchmark {
+
+  public static void main(String... args) {
+    var nodes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    var edges = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+    // random edges following a hidden order, inserted in random sequence, never close a cycle
+    var random = new Random(4711);
+    var ids = new String[nodes];
+    for (int i = 0; i < nodes; i++) {
+      ids[i] = ("com.example.module" + (i % 97) + ".Type" + i).intern();
+    }
+    var sources = new int[edges];
+    var targets = new int[edges];
+    for (int i = 0; i < edges; i++) {
+      sources[i] = random.nextInt(nodes - 1);
+      targets[i] = sources[i] + 1 + random.nextInt(nodes - 1 - sources[i]);
+    }
+    for (int round = 1; round <= 3; round++) {
+      var before = usedMemory();
+      var start = System.nanoTime();
+      var graph = new DirectedAcyclicGraph();
+      for (int i = 0; i < edges; i++) {
+        graph.addEdge(ids[sources[i]], ids[targets[i]]);
+      }
+      var nanos = System.nanoTime() - start;
+      var retained = usedMemory() - before;
+      System.out.printf(
+          "round %d: %,d edges in %,d ms, %,.0f edges/s, %,d bytes retained, %.1f bytes/edge%n",
+          round,
+          edges,
+          nanos / 1_000_000,
+          edges * 1e9 / nanos,
+          retained,
+          retained / (double) edges);
+      if (graph.getTopologicalOrder().size() != nodes) {
+        throw new AssertionError("unexpected node count");
+      }
+    }
+  }
+
+  private static long usedMemory() {
+    var runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}